@@ -0,0 +1,88 @@
+package com.assurance.config;
+
+import com.assurance.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût par requête de l'authentification JWT de JwtAuthFilter (jeton extrait de l'en-tête jusqu'au contexte de sécurité).
+ *
+ * cachedToken: jeton déjà vérifié, lu dans le cache; verifiedToken: cache désactivé, parseur partagé;
+ * perCallParser reproduit l'ancienne implémentation (Jwts.parserBuilder() à chaque requête) comme point de comparaison.
+ * La variante MultiThread exécute les mêmes mesures sur 4 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class JwtAuthFilterBenchmark {
+
+    @Threads(1)
+    public static class SingleThread extends JwtAuthFilterBenchmark {}
+
+    @Threads(4)
+    public static class MultiThread extends JwtAuthFilterBenchmark {}
+
+    private final SecretKey key = Keys.hmacShaKeyFor("0123456789ABCDEF0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII));
+    private JwtAuthFilter cachingFilter;
+    private JwtAuthFilter verifyingFilter;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtService jwtService = new JwtService(key, 3_600_000L);
+        token = jwtService.generateToken("admin", Map.of("roles", List.of("ADMIN")));
+        cachingFilter = new JwtAuthFilter(jwtService, 10_000);
+        verifyingFilter = new JwtAuthFilter(jwtService, 0);
+        if (cachingFilter.authenticate(token) == null) {
+            throw new IllegalStateException("Jeton de test refusé");
+        }
+    }
+
+    @Benchmark
+    public Object cachedToken() {
+        return authenticate(cachingFilter.authenticate(token));
+    }
+
+    @Benchmark
+    public Object verifiedToken() {
+        return authenticate(verifyingFilter.authenticate(token));
+    }
+
+    @Benchmark
+    public Object perCallParser() {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        @SuppressWarnings("unchecked")
+        List<String> roles = (List<String>) claims.getOrDefault("roles", new ArrayList<>());
+        List<SimpleGrantedAuthority> authorities = roles.stream()
+                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+                .map(SimpleGrantedAuthority::new)
+                .toList();
+        return authenticate(new UsernamePasswordAuthenticationToken(claims.getSubject(), null, authorities));
+    }
+
+    // Comme le filtre: authentification placée dans le contexte, puis contexte vidé en fin de requête
+    private static Object authenticate(UsernamePasswordAuthenticationToken authentication) {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
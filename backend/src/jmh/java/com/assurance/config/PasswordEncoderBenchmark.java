@@ -0,0 +1,69 @@
+package com.assurance.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vérifications de mot de passe par seconde et par cœur pour chaque réglage de app.security.password,
+ * avec l'encodeur construit par SecurityConfig (mêmes délégués, même préfixe).
+ *
+ * SingleThread: un seul thread, le score est directement le débit d'un cœur. AllCores: un thread par cœur,
+ * le compteur auxiliaire "perCore" ramène le débit total à un cœur (contention mémoire d'Argon2 comprise).
+ * Capacité de connexion ≈ perCore × app.security.password.threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class PasswordEncoderBenchmark {
+
+    @Threads(1)
+    public static class SingleThread extends PasswordEncoderBenchmark {}
+
+    @Threads(Threads.MAX)
+    public static class AllCores extends PasswordEncoderBenchmark {}
+
+    // algorithme:coût (bcrypt:strength, argon2:mémoire Ko:itérations:parallélisme)
+    @Param({"bcrypt:10", "bcrypt:12", "argon2:19456:2:1", "argon2:65536:3:1"})
+    public String setting;
+
+    private PasswordEncoder encoder;
+    private String encoded;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public double perCore;
+        // Un thread par cœur au plus: chaque vérification compte pour 1 / nombre de threads
+        private double weight;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) {
+            weight = 1.0 / params.getThreads();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = setting.split(":");
+        encoder = parts[0].equals("bcrypt")
+                ? SecurityConfig.createPasswordEncoder("bcrypt", Integer.parseInt(parts[1]), 19456, 2, 1)
+                : SecurityConfig.createPasswordEncoder("argon2", 10,
+                        Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        encoded = encoder.encode("MotDePasse-2024!");
+        if (encoder.upgradeEncoding(encoded) || !encoder.matches("MotDePasse-2024!", encoded)) {
+            throw new IllegalStateException("Réglage incohérent: " + setting);
+        }
+    }
+
+    @Benchmark
+    public boolean matches(Counters counters) {
+        counters.perCore += counters.weight;
+        return encoder.matches("MotDePasse-2024!", encoded);
+    }
+}
@@ -0,0 +1,109 @@
+package com.assurance.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de CryptoService (chiffrement AES-GCM des fichiers) pour 4 Ko, 1 Mo et 50 Mo.
+ *
+ * Le compteur auxiliaire "megabytes" donne directement des Mo/s; la variante MultiThread
+ * exécute les mêmes mesures sur 4 threads. encryptPerCallCipher reproduit l'ancienne
+ * implémentation (SecretKeySpec + Cipher.getInstance à chaque appel) comme point de comparaison.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class CryptoBenchmark {
+
+    @Threads(1)
+    public static class SingleThread extends CryptoBenchmark {}
+
+    @Threads(4)
+    public static class MultiThread extends CryptoBenchmark {}
+
+    @Param({"4096", "1048576", "52428800"})
+    public int size;
+
+    private final byte[] keyBytes = "0123456789ABCDEF0123456789ABCDEF".getBytes();
+    private CryptoService crypto;
+    private byte[] plain;
+    private byte[] iv;
+    private byte[] cipherText;
+    private byte[] segmentedCipherText;
+    private byte[] fileNonce;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public double megabytes;
+        // GCM interdit de réutiliser un IV en chiffrement: un IV distinct par appel et par thread
+        private final ByteBuffer nextIv = ByteBuffer.allocate(12).putInt(0, new Random().nextInt());
+        private long counter;
+
+        byte[] nextIv() {
+            nextIv.putLong(4, ++counter);
+            return nextIv.array().clone();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        crypto = new CryptoService();
+        plain = new byte[size];
+        new Random(42).nextBytes(plain);
+        iv = crypto.randomIv();
+        cipherText = crypto.encrypt(iv, plain);
+        fileNonce = crypto.randomSegmentedNonce();
+        segmentedCipherText = crypto.encryptSegmentedStream(fileNonce, new ByteArrayInputStream(plain)).readAllBytes();
+    }
+
+    @Benchmark
+    public byte[] encrypt(Counters counters) {
+        counters.megabytes += size / 1_000_000.0;
+        return crypto.encrypt(counters.nextIv(), plain);
+    }
+
+    @Benchmark
+    public byte[] encryptPerCallCipher(Counters counters) throws Exception {
+        counters.megabytes += size / 1_000_000.0;
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(128, counters.nextIv()));
+        return cipher.doFinal(plain);
+    }
+
+    @Benchmark
+    public byte[] decrypt(Counters counters) {
+        counters.megabytes += size / 1_000_000.0;
+        return crypto.decrypt(iv, cipherText);
+    }
+
+    @Benchmark
+    public long decryptStreamLegacy(Counters counters) throws IOException {
+        counters.megabytes += size / 1_000_000.0;
+        return crypto.decryptStream(iv, new ByteArrayInputStream(cipherText)).transferTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long encryptSegmentedStream(Counters counters) throws IOException {
+        counters.megabytes += size / 1_000_000.0;
+        return crypto.encryptSegmentedStream(fileNonce, new ByteArrayInputStream(plain)).transferTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long decryptSegmentedStream(Counters counters) throws IOException {
+        counters.megabytes += size / 1_000_000.0;
+        return crypto.decryptSegmentedStream(new ByteArrayInputStream(segmentedCipherText)).transferTo(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,180 @@
+package com.assurance.service;
+
+import com.assurance.App;
+import com.assurance.domain.ReportFile;
+import com.assurance.repo.ReportFileRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liste et suppression des fichiers d'un rapport de 200 pièces jointes de 512 Ko, sur l'application démarrée
+ * contre PostgreSQL (SPRING_DATASOURCE_URL / _USERNAME / _PASSWORD, sinon la base de application.properties).
+ *
+ * Les fichiers sont écrits au format historique, contenu dans la ligne report_files (cipher_text): c'est le cas où
+ * charger l'entité ramène tout le BYTEA. listSummaries / deleteByStorageRef passent par la projection
+ * (FileService.getReportFiles, FileService.deleteReportFile); listEntities / deleteAfterEntityLoad reproduisent
+ * l'ancienne implémentation (entités ReportFile chargées, puis supprimées) comme point de comparaison.
+ * Mémoire allouée par opération: ajouter "-prof gc" à jmh.args (gc.alloc.rate.norm). Pour les suppressions, la mesure
+ * inclut l'insertion des fichiers avant l'itération (environ une fois le contenu): seul l'écart entre variantes compte.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ReportFilesBenchmark {
+
+    @Param({"200"})
+    public int files;
+
+    @Param({"524288"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private FileService fileService;
+    private ReportFileRepository reportFileRepository;
+    private EntityManager entityManager;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(App.class).run(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.assurance=WARN",
+                "--logging.level.org.springframework.web=WARN");
+        fileService = context.getBean(FileService.class);
+        reportFileRepository = context.getBean(ReportFileRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        // Contenu généré une seule fois: la préparation des itérations de suppression n'alloue presque rien
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    // Rapport lu à chaque opération, créé une fois par essai
+    @State(Scope.Benchmark)
+    public static class ListedReport {
+        Long reportId;
+
+        @Setup(Level.Trial)
+        public void setUp(ReportFilesBenchmark benchmark) {
+            reportId = benchmark.createReport();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown(ReportFilesBenchmark benchmark) {
+            benchmark.dropReport(reportId);
+        }
+    }
+
+    // Rapport vidé par l'opération: recréé avant chaque itération
+    @State(Scope.Benchmark)
+    public static class DeletedReport {
+        Long reportId;
+        List<Long> fileIds;
+
+        @Setup(Level.Iteration)
+        public void setUp(ReportFilesBenchmark benchmark) {
+            reportId = benchmark.createReport();
+            fileIds = benchmark.jdbcTemplate.queryForList(
+                    "SELECT id FROM report_files WHERE report_id = ?", Long.class, reportId);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(ReportFilesBenchmark benchmark) {
+            benchmark.dropReport(reportId);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Object listSummaries(ListedReport report) {
+        return fileService.getReportFiles(report.reportId);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Object listEntities(ListedReport report) {
+        // Requête dérivée de l'ancien ReportFileRepository.findByReportIdOrderByCreatedAtDesc
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT rf FROM ReportFile rf WHERE rf.report.id = :reportId ORDER BY rf.createdAt DESC", ReportFile.class)
+                .setParameter("reportId", report.reportId)
+                .getResultList());
+    }
+
+    // Une opération = suppression des 200 fichiers, un appel de service par fichier comme depuis FileController
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 8)
+    public void deleteByStorageRef(DeletedReport report) {
+        for (Long fileId : report.fileIds) {
+            fileService.deleteReportFile(fileId);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 8)
+    public void deleteAfterEntityLoad(DeletedReport report) {
+        for (Long fileId : report.fileIds) {
+            // Ancienne implémentation: findById (contenu compris) avant la suppression
+            transactionTemplate.executeWithoutResult(status -> {
+                ReportFile reportFile = reportFileRepository.findById(fileId).orElseThrow();
+                fileService.deleteReportFile(reportFile.getId());
+            });
+        }
+    }
+
+    // Rapport de test et ses fichiers au format historique (contenu dans la ligne: aucune déduplication)
+    Long createReport() {
+        Long reportId = jdbcTemplate.queryForObject(
+                "INSERT INTO reports (title, status, created_at) VALUES (?, 'DISPONIBLE', now()) RETURNING id",
+                Long.class, "ReportFilesBenchmark");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO report_files (report_id, file_name, content_type, file_size, cipher_text, file_type, " +
+                "category, is_public, created_at, updated_at) VALUES (?, ?, 'application/pdf', ?, ?, 'PDF', 'document', false, ?, ?)",
+                Collections.nCopies(files, reportId), 20, (PreparedStatement ps, Long id) -> {
+                    Timestamp now = Timestamp.from(Instant.now());
+                    ps.setLong(1, id);
+                    ps.setString(2, "piece-" + System.nanoTime() + ".pdf");
+                    ps.setLong(3, size);
+                    ps.setBytes(4, content);
+                    ps.setTimestamp(5, now);
+                    ps.setTimestamp(6, now);
+                });
+        return reportId;
+    }
+
+    void dropReport(Long reportId) {
+        jdbcTemplate.update("DELETE FROM report_files WHERE report_id = ?", reportId);
+        jdbcTemplate.update("DELETE FROM reports WHERE id = ?", reportId);
+    }
+}
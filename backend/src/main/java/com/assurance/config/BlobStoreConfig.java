@@ -0,0 +1,38 @@
+package com.assurance.config;
+
+import com.assurance.service.storage.BlobStore;
+import com.assurance.service.storage.LocalBlobStore;
+import com.assurance.service.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Sélection du stockage du contenu des fichiers (propriété app.blob.store / variable APP_BLOB_STORE):
+ * - db (défaut): contenu conservé dans les colonnes BYTEA, aucun BlobStore n'est déclaré
+ * - local: répertoire local (APP_BLOB_DIR)
+ * - s3: bucket compatible S3 (APP_BLOB_S3_*)
+ */
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.blob.store", havingValue = "local")
+    public BlobStore localBlobStore(@Value("${app.blob.local.root}") String root) throws IOException {
+        return new LocalBlobStore(Path.of(root));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.blob.store", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${app.blob.s3.endpoint}") String endpoint,
+                                 @Value("${app.blob.s3.bucket}") String bucket,
+                                 @Value("${app.blob.s3.region}") String region,
+                                 @Value("${app.blob.s3.access-key}") String accessKey,
+                                 @Value("${app.blob.s3.secret-key}") String secretKey) {
+        return new S3BlobStore(endpoint, bucket, region, accessKey, secretKey);
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,15 +15,36 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Authentification par jeton JWT (en-tête Authorization: Bearer).
+ *
+ * Les jetons déjà vérifiés sont gardés en cache, indexés par leur empreinte SHA-256 (le jeton lui-même n'est pas
+ * conservé), jusqu'à leur date d'expiration: les appels suivants d'une même session évitent le décodage et la
+ * vérification de la signature. Le cache est borné à app.security.token-cache.max-entries (0: désactivé).
+ */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
+    private final int maxCachedTokens;
 
-    public JwtAuthFilter(JwtService jwtService) {
+    private record VerifiedToken(String subject, List<SimpleGrantedAuthority> authorities, long expiresAtMs) {}
+
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    public JwtAuthFilter(JwtService jwtService,
+                         @Value("${app.security.token-cache.max-entries}") int maxCachedTokens) {
         this.jwtService = jwtService;
+        this.maxCachedTokens = maxCachedTokens;
     }
 
     @Override
@@ -30,24 +52,82 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         String auth = request.getHeader(HttpHeaders.AUTHORIZATION);
         if (auth != null && auth.startsWith("Bearer ")) {
-            String token = auth.substring(7);
-            try {
-                Claims claims = jwtService.parseToken(token);
-                String subject = claims.getSubject();
-                @SuppressWarnings("unchecked")
-                List<String> roles = (List<String>) claims.getOrDefault("roles", new ArrayList<>());
-                List<SimpleGrantedAuthority> authorities = roles.stream()
-                        .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
-                        .map(SimpleGrantedAuthority::new)
-                        .toList();
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(subject, null, authorities);
+            UsernamePasswordAuthenticationToken authentication = authenticate(auth.substring(7));
+            if (authentication != null) {
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-            } catch (Exception ignored) {
-                // Invalid token -> continue without authentication
             }
         }
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Authentification correspondant au jeton, ou null s'il est invalide ou expiré.
+     */
+    UsernamePasswordAuthenticationToken authenticate(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified == null) {
+            return null;
+        }
+        // Nouvel objet à chaque requête: le contexte de sécurité ne partage pas d'état entre les requêtes
+        return new UsernamePasswordAuthenticationToken(verified.subject(), null, verified.authorities());
+    }
 
+    private VerifiedToken verify(String token) {
+        String key = maxCachedTokens > 0 ? digest(token) : null;
+        if (key != null) {
+            VerifiedToken cached = verifiedTokens.get(key);
+            if (cached != null) {
+                if (System.currentTimeMillis() < cached.expiresAtMs()) {
+                    return cached;
+                }
+                verifiedTokens.remove(key, cached);
+                return null;
+            }
+        }
+        VerifiedToken verified;
+        try {
+            Claims claims = jwtService.parseToken(token);
+            @SuppressWarnings("unchecked")
+            List<String> roles = (List<String>) claims.getOrDefault("roles", new ArrayList<>());
+            List<SimpleGrantedAuthority> authorities = roles.stream()
+                    .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
+            Date expiration = claims.getExpiration();
+            verified = new VerifiedToken(claims.getSubject(), authorities,
+                    expiration != null ? expiration.getTime() : Long.MIN_VALUE);
+        } catch (Exception ignored) {
+            // Invalid token -> continue without authentication
+            return null;
+        }
+        // Jeton sans date d'expiration: jamais mis en cache
+        if (key != null && verified.expiresAtMs() != Long.MIN_VALUE) {
+            if (verifiedTokens.size() >= maxCachedTokens) {
+                evict();
+            }
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
+    // Cache plein: retire les jetons expirés, puis vide le cache s'il reste plein (les jetons seront revérifiés)
+    private synchronized void evict() {
+        if (verifiedTokens.size() < maxCachedTokens) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        verifiedTokens.values().removeIf(entry -> entry.expiresAtMs() <= now);
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            verifiedTokens.clear();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
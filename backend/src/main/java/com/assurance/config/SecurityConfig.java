@@ -1,23 +1,81 @@
 package com.assurance.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
     
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final Pattern ARGON2_PARAMS = Pattern.compile("\\$m=(\\d+),t=(\\d+),p=(\\d+)\\$");
+
+    /**
+     * Hachages préfixés par l'algorithme ("{bcrypt}...", "{argon2}..."), nouveaux mots de passe hachés avec
+     * app.security.password.encoder. Les hachages historiques sans préfixe sont des BCrypt.
+     * upgradeEncoding est vrai si l'algorithme ou le coût diffère de la configuration (plus faible ou plus élevé):
+     * UserService.authenticateUser refait alors le hachage à la connexion.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.encoder}") String encoderId,
+                                           @Value("${app.security.password.bcrypt.strength}") int bcryptStrength,
+                                           @Value("${app.security.password.argon2.memory-kb}") int argon2MemoryKb,
+                                           @Value("${app.security.password.argon2.iterations}") int argon2Iterations,
+                                           @Value("${app.security.password.argon2.parallelism}") int argon2Parallelism) {
+        return createPasswordEncoder(encoderId, bcryptStrength, argon2MemoryKb, argon2Iterations, argon2Parallelism);
+    }
+
+    static PasswordEncoder createPasswordEncoder(String encoderId, int bcryptStrength,
+                                                 int argon2MemoryKb, int argon2Iterations, int argon2Parallelism) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength) {
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                Matcher cost = BCRYPT_COST.matcher(encodedPassword);
+                return !cost.find() || Integer.parseInt(cost.group(1)) != bcryptStrength;
+            }
+        };
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH,
+                argon2Parallelism, argon2MemoryKb, argon2Iterations) {
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                Matcher params = ARGON2_PARAMS.matcher(encodedPassword);
+                return !params.find() || Integer.parseInt(params.group(1)) != argon2MemoryKb
+                        || Integer.parseInt(params.group(2)) != argon2Iterations
+                        || Integer.parseInt(params.group(3)) != argon2Parallelism;
+            }
+        });
+        if (!encoders.containsKey(encoderId)) {
+            throw new IllegalArgumentException("app.security.password.encoder inconnu: " + encoderId + " (bcrypt ou argon2)");
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encoderId, encoders) {
+            @Override
+            public boolean upgradeEncoding(String prefixEncodedPassword) {
+                // Hachage historique sans préfixe: BCrypt, conservé tel quel tant que le coût correspond
+                return super.upgradeEncoding(prefixEncodedPassword.startsWith("{") ? prefixEncodedPassword : "{bcrypt}" + prefixEncodedPassword);
+            }
+        };
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
 
     /**
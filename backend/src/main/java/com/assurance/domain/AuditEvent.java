@@ -1,10 +1,17 @@
 package com.assurance.domain;
 
+import com.assurance.service.StatsRollupListener;
 import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "audit_events")
+// Index décroissants: lus dans l'ordre des pages de /api/admin/audit (atiso DESC, id DESC)
+@Table(name = "audit_events", indexes = {
+    @Index(name = "idx_audit_events_type_at_id", columnList = "type, atISO DESC, id DESC"),
+    @Index(name = "idx_audit_events_actor_at_id", columnList = "actor, atISO DESC, id DESC"),
+    @Index(name = "idx_audit_events_at_id", columnList = "atISO DESC, id DESC")
+})
+@EntityListeners(StatsRollupListener.class)
 public class AuditEvent {
     public enum EventType {
         ACCESS_REQUEST_CREATED,
@@ -0,0 +1,9 @@
+package com.assurance.domain;
+
+import java.time.Instant;
+
+/**
+ * Événement d'audit tel que renvoyé par la consultation et l'export (lecture JDBC, hors contexte de persistance:
+ * les lignes ne s'accumulent pas en mémoire pendant un long export).
+ */
+public record AuditEventRow(Long id, AuditEvent.EventType type, String actor, String message, Instant atISO) {}
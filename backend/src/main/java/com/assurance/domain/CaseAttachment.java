@@ -1,11 +1,16 @@
 package com.assurance.domain;
 
+import com.assurance.service.GlobalSearchListener;
 import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "case_attachments")
-public class CaseAttachment {
+@Table(name = "case_attachments", indexes = {
+    @Index(name = "idx_case_attachments_storage_key", columnList = "storageKey"),
+    @Index(name = "idx_case_attachments_content_id", columnList = "contentId")
+})
+@EntityListeners(GlobalSearchListener.class)
+public class CaseAttachment implements FileSummary {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,10 +29,23 @@ public class CaseAttachment {
     private Long sizeBytes;
 
     @Column(columnDefinition = "BYTEA")
-    private byte[] iv; // 16 bytes IV pour le chiffrement
+    private byte[] iv; // IV du format historique, ou sel et préfixe de nonce du format segmenté
 
-    @Column(columnDefinition = "BYTEA")
-    private byte[] cipherText; // Contenu chiffré du fichier
+    @Column
+    private Integer encryptionFormat; // null: AES-GCM en un seul bloc (historique), 1 ou 2: AES-GCM segmenté (2: sous-clé par fichier)
+
+    // Écrit à l'insertion ou en flux par JDBC (FileService, BlobMigrationService): jamais réécrit par un UPDATE Hibernate
+    @Column(columnDefinition = "BYTEA", updatable = false)
+    private byte[] cipherText; // Contenu chiffré du fichier (null si le contenu est dans le BlobStore)
+
+    @Column(length = 64)
+    private String storageKey; // Clé SHA-256 du contenu dans le BlobStore
+
+    @Column
+    private Long contentId; // Contenu partagé (file_contents); null pour les fichiers stockés dans leur propre ligne
+
+    @Column(length = 64)
+    private String contentHash; // SHA-256 du contenu en clair (sert d'ETag)
 
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
@@ -84,9 +102,21 @@ public class CaseAttachment {
     public byte[] getIv() { return iv; }
     public void setIv(byte[] iv) { this.iv = iv; }
 
+    public Integer getEncryptionFormat() { return encryptionFormat; }
+    public void setEncryptionFormat(Integer encryptionFormat) { this.encryptionFormat = encryptionFormat; }
+
     public byte[] getCipherText() { return cipherText; }
     public void setCipherText(byte[] cipherText) { this.cipherText = cipherText; }
 
+    public String getStorageKey() { return storageKey; }
+    public void setStorageKey(String storageKey) { this.storageKey = storageKey; }
+
+    public Long getContentId() { return contentId; }
+    public void setContentId(Long contentId) { this.contentId = contentId; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
@@ -105,23 +135,7 @@ public class CaseAttachment {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
-    // Méthodes utilitaires
-    public String getFileExtension() {
-        if (fileName != null && fileName.contains(".")) {
-            return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-        }
-        return "";
-    }
-
-    public String getFormattedSize() {
-        if (sizeBytes == null) return "0 B";
-        
-        long bytes = sizeBytes;
-        if (bytes < 1024) return bytes + " B";
-        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
-        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
-        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
-    }
+    // Méthodes utilitaires (getFileExtension, getFormattedSize): voir FileSummary
 
     @Override
     public String toString() {
@@ -0,0 +1,8 @@
+package com.assurance.domain;
+
+/**
+ * Projection d'une pièce jointe: métadonnées et identifiant du dossier parent.
+ */
+public interface CaseAttachmentSummary extends FileSummary {
+    Long getCaseId();
+}
@@ -0,0 +1,39 @@
+package com.assurance.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * Terme de recherche extrait du dataJson d'un dossier: un couple (champ, valeur normalisée) par valeur
+ * scalaire du JSON. Le champ est le chemin des clés ("souscripteur_nom", "beneficiaires.nom"), les
+ * indices de tableau étant omis. La valeur est en minuscules, sans accents.
+ *
+ * Maintenu par CaseSearchService à chaque écriture d'un dossier. Une ligne marqueur (champ "$") est
+ * toujours présente pour un dossier indexé, même si son JSON ne contient aucune valeur.
+ */
+@Entity
+@Table(name = "case_search_terms", indexes = {
+    @Index(name = "idx_case_search_terms_field_term", columnList = "field, term"),
+    @Index(name = "uk_case_search_terms_case_field_term", columnList = "caseId, field, term", unique = true)
+})
+public class CaseSearchTerm {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long caseId;
+
+    @Column(nullable = false, length = 128)
+    private String field;
+
+    @Column(nullable = false, length = 255)
+    private String term;
+
+    public CaseSearchTerm() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getCaseId() { return caseId; }
+    public String getField() { return field; }
+    public String getTerm() { return term; }
+}
@@ -0,0 +1,15 @@
+package com.assurance.domain;
+
+import java.time.Instant;
+
+/**
+ * Projection d'un dossier pour les listes: sans dataJson (TEXT), servi à part par /api/cases/{id}/data.
+ */
+public interface CaseSummary {
+    Long getId();
+    String getReference();
+    InsuranceCase.CaseType getType();
+    InsuranceCase.CaseStatus getStatus();
+    String getCreatedBy();
+    Instant getCreatedAt();
+}
@@ -0,0 +1,15 @@
+package com.assurance.domain;
+
+/**
+ * Bilan de la déduplication des contenus de fichiers (table file_contents).
+ */
+public interface DeduplicationStats {
+    long getContentCount();     // contenus distincts stockés
+    long getReferenceCount();   // fichiers qui les référencent
+    long getStoredBytes();      // octets réellement stockés
+    long getLogicalBytes();     // octets qui seraient stockés sans déduplication
+
+    default long getBytesSaved() {
+        return getLogicalBytes() - getStoredBytes();
+    }
+}
@@ -0,0 +1,59 @@
+package com.assurance.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Contenu de fichier dédupliqué, partagé par tous les fichiers de rapports et pièces jointes identiques.
+ * Identifié par le SHA-256 du clair; refCount compte les lignes report_files / case_attachments qui le
+ * référencent (colonne content_id). Les lignes sont écrites et supprimées en JDBC par FileService.
+ */
+@Entity
+@Table(name = "file_contents",
+    uniqueConstraints = @UniqueConstraint(name = "uk_file_contents_content_hash", columnNames = "contentHash"),
+    indexes = @Index(name = "idx_file_contents_storage_key", columnList = "storageKey"))
+public class FileContent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash; // SHA-256 du contenu en clair
+
+    @Column(columnDefinition = "BYTEA", insertable = false, updatable = false)
+    private byte[] cipherText; // Contenu stocké en mode "db" (null si le contenu est dans le BlobStore)
+
+    @Column(length = 64)
+    private String storageKey; // Clé SHA-256 du contenu dans le BlobStore
+
+    @Column(columnDefinition = "BYTEA")
+    private byte[] iv; // Sel et préfixe de nonce du format segmenté (null si non chiffré)
+
+    @Column
+    private Integer encryptionFormat;
+
+    @Column(nullable = false)
+    private Long sizeBytes; // Taille du clair
+
+    @Column(nullable = false)
+    private Long storedBytes; // Taille stockée (chiffrée le cas échéant)
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public FileContent() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public String getContentHash() { return contentHash; }
+    public String getStorageKey() { return storageKey; }
+    public byte[] getIv() { return iv; }
+    public Integer getEncryptionFormat() { return encryptionFormat; }
+    public Long getSizeBytes() { return sizeBytes; }
+    public Long getStoredBytes() { return storedBytes; }
+    public Integer getRefCount() { return refCount; }
+    public Instant getCreatedAt() { return createdAt; }
+}
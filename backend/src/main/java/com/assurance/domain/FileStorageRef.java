@@ -0,0 +1,10 @@
+package com.assurance.domain;
+
+/**
+ * Projection de l'emplacement du contenu d'un fichier: clé BlobStore propre à la ligne (stockage
+ * historique) et/ou contenu partagé dédupliqué (file_contents).
+ */
+public interface FileStorageRef {
+    String getStorageKey();
+    Long getContentId();
+}
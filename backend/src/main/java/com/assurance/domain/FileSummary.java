@@ -0,0 +1,44 @@
+package com.assurance.domain;
+
+import java.time.Instant;
+
+/**
+ * Métadonnées d'un fichier stocké, sans son contenu (iv / cipherText).
+ *
+ * Sert de projection Spring Data pour les listes et recherches: les requêtes qui la retournent
+ * ne sélectionnent que ces colonnes, les BYTEA ne sont jamais lus.
+ */
+public interface FileSummary {
+    Long getId();
+    String getFileName();
+    String getContentType();
+    Long getSizeBytes();
+    String getFileType();
+    String getCategory();
+    String getDescription();
+    Boolean getIsPublic();
+    Instant getCreatedAt();
+    Instant getUpdatedAt();
+
+    /** SHA-256 du contenu en clair, null pour les fichiers enregistrés avant son introduction. */
+    String getContentHash();
+
+    default String getFileExtension() {
+        String fileName = getFileName();
+        if (fileName != null && fileName.contains(".")) {
+            return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+        }
+        return "";
+    }
+
+    default String getFormattedSize() {
+        Long sizeBytes = getSizeBytes();
+        if (sizeBytes == null) return "0 B";
+
+        long bytes = sizeBytes;
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
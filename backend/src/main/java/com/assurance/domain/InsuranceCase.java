@@ -1,13 +1,27 @@
 package com.assurance.domain;
 
+import com.assurance.service.CaseSearchListener;
+import com.assurance.service.GlobalSearchListener;
+import com.assurance.service.StatsRollupListener;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 @Entity
-@Table(name = "insurance_cases")
+@Table(name = "insurance_cases", indexes = {
+    @Index(name = "idx_insurance_cases_created_at_id", columnList = "createdAt, id"),
+    @Index(name = "idx_insurance_cases_created_by_created_at", columnList = "createdBy, createdAt"),
+    @Index(name = "idx_insurance_cases_status_created_at", columnList = "status, createdAt"),
+    @Index(name = "idx_insurance_cases_type_created_at", columnList = "type, createdAt"),
+    @Index(name = "idx_insurance_cases_data_digest", columnList = "dataDigest, createdAt")
+})
+@EntityListeners({StatsRollupListener.class, CaseSearchListener.class, GlobalSearchListener.class})
 public class InsuranceCase {
     public enum CaseType { ENQUETE, FRAUDULEUX }
     public enum CaseStatus { SOUS_ENQUETE, FRAUDULEUX, PREUVE_INSUFFISANTE }
@@ -33,6 +47,11 @@ public class InsuranceCase {
     @Column(columnDefinition = "TEXT")
     private String dataJson;
 
+    // SHA-256 du dataJson (null traité comme vide): détection des doublons par index sans comparer les JSON
+    @Column(length = 64)
+    @JsonIgnore
+    private String dataDigest;
+
     // TEMPORAIRE: Désactiver la relation avec Report pour éviter les erreurs LOB
     // @ManyToOne(fetch = FetchType.LAZY)
     // private Report report;
@@ -51,6 +70,22 @@ public class InsuranceCase {
     @PrePersist
     public void onCreate() {
         if (createdAt == null) createdAt = Instant.now();
+        dataDigest = digestOf(dataJson);
+    }
+
+    @PreUpdate
+    public void onUpdate() {
+        dataDigest = digestOf(dataJson);
+    }
+
+    public static String digestOf(String dataJson) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest((dataJson != null ? dataJson : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 
     public Long getId() { return id; }
@@ -71,6 +106,8 @@ public class InsuranceCase {
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
+    public String getDataDigest() { return dataDigest; }
+
     public String getCreatedBy() { return createdBy; }
     public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
 
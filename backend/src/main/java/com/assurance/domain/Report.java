@@ -1,10 +1,16 @@
 package com.assurance.domain;
 
+import com.assurance.service.GlobalSearchListener;
 import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = {
+    @Index(name = "idx_reports_created_at_id", columnList = "createdAt, id"),
+    @Index(name = "idx_reports_created_by_created_at", columnList = "createdBy, createdAt"),
+    @Index(name = "idx_reports_status_created_at", columnList = "status, createdAt")
+})
+@EntityListeners(GlobalSearchListener.class)
 public class Report {
     public enum Status { DISPONIBLE, EN_ATTENTE, TRAITE }
 
@@ -0,0 +1,8 @@
+package com.assurance.domain;
+
+/**
+ * Projection d'un fichier de rapport: métadonnées et identifiant du rapport parent.
+ */
+public interface ReportFileSummary extends FileSummary {
+    Long getReportId();
+}
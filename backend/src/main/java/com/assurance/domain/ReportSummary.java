@@ -0,0 +1,18 @@
+package com.assurance.domain;
+
+import java.time.Instant;
+
+/**
+ * Projection d'un rapport pour les listes: sans les colonnes JSON beneficiaries / insureds (TEXT),
+ * lues uniquement par la vue détail.
+ */
+public interface ReportSummary {
+    Long getId();
+    String getTitle();
+    Report.Status getStatus();
+    String getCaseId();
+    String getInitiator();
+    String getSubscriber();
+    String getCreatedBy();
+    Instant getCreatedAt();
+}
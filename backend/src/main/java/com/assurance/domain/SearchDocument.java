@@ -0,0 +1,65 @@
+package com.assurance.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Document de la recherche globale: un rapport, un dossier, un fichier de rapport ou une pièce jointe
+ * de dossier, avec ce qu'il faut pour l'afficher dans les résultats (titre, sous-titre, date) et ses mots
+ * indexés (searchVector, searchText).
+ *
+ * Maintenu par GlobalSearchService à chaque écriture de la donnée source. Les index GIN de search_vector et
+ * de search_text (pg_trgm) sont créés par GlobalSearchService au démarrage, voir recherche_globale.sql.
+ */
+@Entity
+@Table(name = "search_documents",
+    uniqueConstraints = @UniqueConstraint(name = "uk_search_documents_source", columnNames = {"docType", "docId"}),
+    indexes = {
+        @Index(name = "idx_search_documents_type_parent", columnList = "docType, parentId"),
+        @Index(name = "idx_search_documents_created_at_id", columnList = "createdAt, id")
+    })
+public class SearchDocument {
+    public enum DocType { REPORT, CASE, REPORT_FILE, CASE_ATTACHMENT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private DocType docType;
+
+    @Column(nullable = false)
+    private Long docId; // Identifiant de la donnée source
+
+    @Column
+    private Long parentId; // Rapport ou dossier d'un fichier; null pour un rapport ou un dossier
+
+    @Column(length = 255)
+    private String title;
+
+    @Column(length = 255)
+    private String subtitle;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String searchText; // Mots du document, sans accents ni casse, séparés par des espaces (recherche approchée)
+
+    // Mots pondérés (A: titre ou référence, B: nom de personne, C: texte libre), écrits uniquement en SQL
+    @Column(columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+
+    public SearchDocument() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public DocType getDocType() { return docType; }
+    public Long getDocId() { return docId; }
+    public Long getParentId() { return parentId; }
+    public String getTitle() { return title; }
+    public String getSubtitle() { return subtitle; }
+    public Instant getCreatedAt() { return createdAt; }
+    public String getSearchText() { return searchText; }
+}
@@ -0,0 +1,39 @@
+package com.assurance.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Compteur agrégé pour les statistiques: un total par indicateur, maison d'assurance et jour.
+ * Maintenu par StatsRollupService dans la transaction qui crée (ou supprime) la donnée comptée,
+ * ce qui évite de parcourir insurance_cases et audit_events à chaque affichage des statistiques.
+ */
+@Entity
+@Table(name = "stats_counters",
+    uniqueConstraints = @UniqueConstraint(name = "uk_stats_counters_key", columnNames = {"metric", "company", "statDay"}))
+public class StatsCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String metric; // CASES, AUDIT_<type d'événement>, ou REBUILT (ligne témoin de la reconstruction)
+
+    @Column(nullable = false, length = 128)
+    private String company;
+
+    @Column(nullable = false)
+    private LocalDate statDay;
+
+    @Column(nullable = false)
+    private Long total;
+
+    public StatsCounter() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public String getMetric() { return metric; }
+    public String getCompany() { return company; }
+    public LocalDate getStatDay() { return statDay; }
+    public Long getTotal() { return total; }
+}
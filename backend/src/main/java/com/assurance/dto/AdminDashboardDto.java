@@ -1,5 +1,6 @@
 package com.assurance.dto;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +27,13 @@ public class AdminDashboardDto {
     private List<UserDto> recentlyLoggedIn;
     private List<UserDto> recentlyLoggedOut;
     
+    // Instant de calcul de chaque section (les sections sont mises en cache séparément)
+    private Instant generatedAt;
+    private Instant countsUpdatedAt;
+    private Instant recentUpdatedAt;
+    private Instant distributionsUpdatedAt;
+    private Instant presenceUpdatedAt;
+    
     public AdminDashboardDto() {}
     
     // Getters et Setters
@@ -82,4 +90,19 @@ public class AdminDashboardDto {
     
     public List<UserDto> getRecentlyLoggedOut() { return recentlyLoggedOut; }
     public void setRecentlyLoggedOut(List<UserDto> recentlyLoggedOut) { this.recentlyLoggedOut = recentlyLoggedOut; }
+    
+    public Instant getGeneratedAt() { return generatedAt; }
+    public void setGeneratedAt(Instant generatedAt) { this.generatedAt = generatedAt; }
+    
+    public Instant getCountsUpdatedAt() { return countsUpdatedAt; }
+    public void setCountsUpdatedAt(Instant countsUpdatedAt) { this.countsUpdatedAt = countsUpdatedAt; }
+    
+    public Instant getRecentUpdatedAt() { return recentUpdatedAt; }
+    public void setRecentUpdatedAt(Instant recentUpdatedAt) { this.recentUpdatedAt = recentUpdatedAt; }
+    
+    public Instant getDistributionsUpdatedAt() { return distributionsUpdatedAt; }
+    public void setDistributionsUpdatedAt(Instant distributionsUpdatedAt) { this.distributionsUpdatedAt = distributionsUpdatedAt; }
+    
+    public Instant getPresenceUpdatedAt() { return presenceUpdatedAt; }
+    public void setPresenceUpdatedAt(Instant presenceUpdatedAt) { this.presenceUpdatedAt = presenceUpdatedAt; }
 }
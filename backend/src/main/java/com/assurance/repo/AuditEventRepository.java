@@ -2,7 +2,22 @@ package com.assurance.repo;
 
 import com.assurance.domain.AuditEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface AuditEventRepository extends JpaRepository<AuditEvent, Long> {
-}
 
+    // Requêtes bornées sur atiso: seules les partitions mensuelles concernées sont lues (voir partitionnement_audit.sql)
+
+    // 5 derniers événements d'un type depuis une date
+    List<AuditEvent> findTop5ByTypeAndAtISOGreaterThanEqualOrderByAtISODesc(AuditEvent.EventType type, Instant since);
+
+    // Événements par type et par jour sur [from, to[ : lignes (jour, type, nombre), triées par jour
+    @Query(value = "SELECT CAST(atiso AS DATE) AS jour, type, COUNT(*) FROM audit_events " +
+                   "WHERE atiso >= :from AND atiso < :to " +
+                   "GROUP BY CAST(atiso AS DATE), type ORDER BY jour", nativeQuery = true)
+    List<Object[]> countByTypeAndDay(@Param("from") Instant from, @Param("to") Instant to);
+}
@@ -1,7 +1,10 @@
 package com.assurance.repo;
 
 import com.assurance.domain.CaseAttachment;
+import com.assurance.domain.CaseAttachmentSummary;
+import com.assurance.domain.FileStorageRef;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,46 +14,77 @@ import java.util.Optional;
 
 @Repository
 public interface CaseAttachmentRepository extends JpaRepository<CaseAttachment, Long> {
+
+    // Colonnes de la projection CaseAttachmentSummary: iv et cipherText (BYTEA) ne sont jamais sélectionnés
+    String SUMMARY_SELECT = "SELECT ca.id AS id, ca.fileName AS fileName, ca.contentType AS contentType, " +
+        "ca.sizeBytes AS sizeBytes, ca.fileType AS fileType, ca.category AS category, ca.description AS description, " +
+        "ca.isPublic AS isPublic, ca.createdAt AS createdAt, ca.updatedAt AS updatedAt, ca.contentHash AS contentHash, ca.insuranceCase.id AS caseId " +
+        "FROM CaseAttachment ca ";
     
     // Trouver toutes les pièces jointes d'un dossier
-    List<CaseAttachment> findByInsuranceCaseIdOrderByCreatedAtDesc(Long caseId);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId ORDER BY ca.createdAt DESC")
+    List<CaseAttachmentSummary> findByInsuranceCaseIdOrderByCreatedAtDesc(@Param("caseId") Long caseId);
+    
+    // Métadonnées d'une pièce jointe, en vérifiant qu'elle appartient bien au dossier
+    @Query(SUMMARY_SELECT + "WHERE ca.id = :id AND ca.insuranceCase.id = :caseId")
+    Optional<CaseAttachmentSummary> findByIdAndInsuranceCaseId(@Param("id") Long id, @Param("caseId") Long caseId);
     
     // Trouver les pièces jointes par catégorie
-    List<CaseAttachment> findByInsuranceCaseIdAndCategoryOrderByCreatedAtDesc(Long caseId, String category);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.category = :category ORDER BY ca.createdAt DESC")
+    List<CaseAttachmentSummary> findByInsuranceCaseIdAndCategoryOrderByCreatedAtDesc(@Param("caseId") Long caseId, @Param("category") String category);
     
     // Trouver les pièces jointes par type de fichier
-    List<CaseAttachment> findByInsuranceCaseIdAndFileTypeOrderByCreatedAtDesc(Long caseId, String fileType);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.fileType = :fileType ORDER BY ca.createdAt DESC")
+    List<CaseAttachmentSummary> findByInsuranceCaseIdAndFileTypeOrderByCreatedAtDesc(@Param("caseId") Long caseId, @Param("fileType") String fileType);
     
     // Trouver les pièces jointes publiques d'un dossier
-    List<CaseAttachment> findByInsuranceCaseIdAndIsPublicTrueOrderByCreatedAtDesc(Long caseId);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.isPublic = true ORDER BY ca.createdAt DESC")
+    List<CaseAttachmentSummary> findByInsuranceCaseIdAndIsPublicTrueOrderByCreatedAtDesc(@Param("caseId") Long caseId);
     
     // Recherche par nom de fichier (insensible à la casse)
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND LOWER(ca.fileName) LIKE LOWER(CONCAT('%', :fileName, '%'))")
-    List<CaseAttachment> findByCaseIdAndFileNameContainingIgnoreCase(@Param("caseId") Long caseId, @Param("fileName") String fileName);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND LOWER(ca.fileName) LIKE LOWER(CONCAT('%', :fileName, '%'))")
+    List<CaseAttachmentSummary> findByCaseIdAndFileNameContainingIgnoreCase(@Param("caseId") Long caseId, @Param("fileName") String fileName);
     
     // Trouver une pièce jointe par son nom exact dans un dossier
-    Optional<CaseAttachment> findByInsuranceCaseIdAndFileName(Long caseId, String fileName);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.fileName = :fileName")
+    Optional<CaseAttachmentSummary> findByInsuranceCaseIdAndFileName(@Param("caseId") Long caseId, @Param("fileName") String fileName);
     
     // Compter les pièces jointes d'un dossier
     long countByInsuranceCaseId(Long caseId);
     
     // Trouver les pièces jointes par extension
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND ca.fileName LIKE CONCAT('%.', :extension)")
-    List<CaseAttachment> findByCaseIdAndFileExtension(@Param("caseId") Long caseId, @Param("extension") String extension);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.fileName LIKE CONCAT('%.', :extension)")
+    List<CaseAttachmentSummary> findByCaseIdAndFileExtension(@Param("caseId") Long caseId, @Param("extension") String extension);
     
     // Trouver les pièces jointes récentes (derniers 30 jours)
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND ca.createdAt >= :thirtyDaysAgo")
-    List<CaseAttachment> findRecentAttachmentsByCaseId(@Param("caseId") Long caseId, @Param("thirtyDaysAgo") java.time.LocalDateTime thirtyDaysAgo);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.createdAt >= :thirtyDaysAgo")
+    List<CaseAttachmentSummary> findRecentAttachmentsByCaseId(@Param("caseId") Long caseId, @Param("thirtyDaysAgo") java.time.Instant thirtyDaysAgo);
     
     // Trouver les pièces jointes par taille (plus grandes que)
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND ca.sizeBytes > :minSize ORDER BY ca.sizeBytes DESC")
-    List<CaseAttachment> findByCaseIdAndSizeGreaterThan(@Param("caseId") Long caseId, @Param("minSize") Long minSize);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.sizeBytes > :minSize ORDER BY ca.sizeBytes DESC")
+    List<CaseAttachmentSummary> findByCaseIdAndSizeGreaterThan(@Param("caseId") Long caseId, @Param("minSize") Long minSize);
     
     // Trouver les pièces jointes par description
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND LOWER(ca.description) LIKE LOWER(CONCAT('%', :description, '%'))")
-    List<CaseAttachment> findByCaseIdAndDescriptionContainingIgnoreCase(@Param("caseId") Long caseId, @Param("description") String description);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND LOWER(ca.description) LIKE LOWER(CONCAT('%', :description, '%'))")
+    List<CaseAttachmentSummary> findByCaseIdAndDescriptionContainingIgnoreCase(@Param("caseId") Long caseId, @Param("description") String description);
     
     // Trouver les pièces jointes par type de contenu
-    @Query("SELECT ca FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId AND ca.contentType LIKE CONCAT('%', :contentType, '%')")
-    List<CaseAttachment> findByCaseIdAndContentTypeContaining(@Param("caseId") Long caseId, @Param("contentType") String contentType);
+    @Query(SUMMARY_SELECT + "WHERE ca.insuranceCase.id = :caseId AND ca.contentType LIKE CONCAT('%', :contentType, '%')")
+    List<CaseAttachmentSummary> findByCaseIdAndContentTypeContaining(@Param("caseId") Long caseId, @Param("contentType") String contentType);
+
+    // Emplacement du contenu d'une pièce jointe (clé BlobStore, contenu partagé), sans charger l'entité
+    @Query("SELECT ca.storageKey AS storageKey, ca.contentId AS contentId FROM CaseAttachment ca WHERE ca.id = :id")
+    Optional<FileStorageRef> findStorageRefById(@Param("id") Long id);
+
+    @Query("SELECT ca.storageKey AS storageKey, ca.contentId AS contentId FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId")
+    List<FileStorageRef> findStorageRefsByCaseId(@Param("caseId") Long caseId);
+
+    // Suppression directe: delete(entity) chargerait d'abord le contenu de la pièce jointe
+    @Modifying
+    @Query("DELETE FROM CaseAttachment ca WHERE ca.id = :id")
+    int deleteAttachmentById(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM CaseAttachment ca WHERE ca.insuranceCase.id = :caseId")
+    int deleteByCaseId(@Param("caseId") Long caseId);
 }
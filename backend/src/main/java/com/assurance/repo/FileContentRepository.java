@@ -0,0 +1,16 @@
+package com.assurance.repo;
+
+import com.assurance.domain.DeduplicationStats;
+import com.assurance.domain.FileContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FileContentRepository extends JpaRepository<FileContent, Long> {
+
+    @Query("SELECT COUNT(c) AS contentCount, COALESCE(SUM(c.refCount), 0) AS referenceCount, " +
+        "COALESCE(SUM(c.storedBytes), 0) AS storedBytes, COALESCE(SUM(c.storedBytes * c.refCount), 0) AS logicalBytes " +
+        "FROM FileContent c")
+    DeduplicationStats getDeduplicationStats();
+}
@@ -16,6 +16,9 @@ public interface InsuranceCaseRepository extends JpaRepository<InsuranceCase, Lo
     // Optional<InsuranceCase> findTopByReportOrderByCreatedAtDesc(Report report);
     Optional<InsuranceCase> findByReference(String reference);
     List<InsuranceCase> findByCreatedBy(String createdBy);
+
+    @Query("SELECT c.dataJson FROM InsuranceCase c WHERE c.id = :id")
+    Optional<String> findDataJsonById(@Param("id") Long id);
     
     @Query("SELECT c.status, COUNT(c) FROM InsuranceCase c GROUP BY c.status")
     List<Object[]> countCasesByStatus();
@@ -1,7 +1,10 @@
 package com.assurance.repo;
 
+import com.assurance.domain.FileStorageRef;
 import com.assurance.domain.ReportFile;
+import com.assurance.domain.ReportFileSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,35 +14,58 @@ import java.util.Optional;
 
 @Repository
 public interface ReportFileRepository extends JpaRepository<ReportFile, Long> {
+
+    // Colonnes de la projection ReportFileSummary: iv et cipherText (BYTEA) ne sont jamais sélectionnés
+    String SUMMARY_SELECT = "SELECT rf.id AS id, rf.fileName AS fileName, rf.contentType AS contentType, " +
+        "rf.sizeBytes AS sizeBytes, rf.fileType AS fileType, rf.category AS category, rf.description AS description, " +
+        "rf.isPublic AS isPublic, rf.createdAt AS createdAt, rf.updatedAt AS updatedAt, rf.contentHash AS contentHash, rf.report.id AS reportId " +
+        "FROM ReportFile rf ";
     
     // Trouver tous les fichiers d'un rapport
-    List<ReportFile> findByReportIdOrderByCreatedAtDesc(Long reportId);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId ORDER BY rf.createdAt DESC")
+    List<ReportFileSummary> findByReportIdOrderByCreatedAtDesc(@Param("reportId") Long reportId);
+    
+    // Métadonnées d'un fichier, en vérifiant qu'il appartient bien au rapport
+    @Query(SUMMARY_SELECT + "WHERE rf.id = :id AND rf.report.id = :reportId")
+    Optional<ReportFileSummary> findByIdAndReportId(@Param("id") Long id, @Param("reportId") Long reportId);
     
     // Trouver les fichiers par type
-    List<ReportFile> findByReportIdAndFileTypeOrderByCreatedAtDesc(Long reportId, String fileType);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.fileType = :fileType ORDER BY rf.createdAt DESC")
+    List<ReportFileSummary> findByReportIdAndFileTypeOrderByCreatedAtDesc(@Param("reportId") Long reportId, @Param("fileType") String fileType);
     
     // Trouver les fichiers publics d'un rapport
-    List<ReportFile> findByReportIdAndIsPublicTrueOrderByCreatedAtDesc(Long reportId);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.isPublic = true ORDER BY rf.createdAt DESC")
+    List<ReportFileSummary> findByReportIdAndIsPublicTrueOrderByCreatedAtDesc(@Param("reportId") Long reportId);
     
     // Recherche par nom de fichier (insensible à la casse)
-    @Query("SELECT rf FROM ReportFile rf WHERE rf.report.id = :reportId AND LOWER(rf.fileName) LIKE LOWER(CONCAT('%', :fileName, '%'))")
-    List<ReportFile> findByReportIdAndFileNameContainingIgnoreCase(@Param("reportId") Long reportId, @Param("fileName") String fileName);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND LOWER(rf.fileName) LIKE LOWER(CONCAT('%', :fileName, '%'))")
+    List<ReportFileSummary> findByReportIdAndFileNameContainingIgnoreCase(@Param("reportId") Long reportId, @Param("fileName") String fileName);
     
     // Trouver un fichier par son nom exact dans un rapport
-    Optional<ReportFile> findByReportIdAndFileName(Long reportId, String fileName);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.fileName = :fileName")
+    Optional<ReportFileSummary> findByReportIdAndFileName(@Param("reportId") Long reportId, @Param("fileName") String fileName);
     
     // Compter les fichiers d'un rapport
     long countByReportId(Long reportId);
     
     // Trouver les fichiers par extension
-    @Query("SELECT rf FROM ReportFile rf WHERE rf.report.id = :reportId AND rf.fileName LIKE CONCAT('%.', :extension)")
-    List<ReportFile> findByReportIdAndFileExtension(@Param("reportId") Long reportId, @Param("extension") String extension);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.fileName LIKE CONCAT('%.', :extension)")
+    List<ReportFileSummary> findByReportIdAndFileExtension(@Param("reportId") Long reportId, @Param("extension") String extension);
     
     // Trouver les fichiers récents (derniers 30 jours)
-    @Query("SELECT rf FROM ReportFile rf WHERE rf.report.id = :reportId AND rf.createdAt >= :thirtyDaysAgo")
-    List<ReportFile> findRecentFilesByReportId(@Param("reportId") Long reportId, @Param("thirtyDaysAgo") java.time.LocalDateTime thirtyDaysAgo);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.createdAt >= :thirtyDaysAgo")
+    List<ReportFileSummary> findRecentFilesByReportId(@Param("reportId") Long reportId, @Param("thirtyDaysAgo") java.time.Instant thirtyDaysAgo);
     
     // Trouver les fichiers par taille (plus grands que)
-    @Query("SELECT rf FROM ReportFile rf WHERE rf.report.id = :reportId AND rf.sizeBytes > :minSize ORDER BY rf.sizeBytes DESC")
-    List<ReportFile> findByReportIdAndSizeGreaterThan(@Param("reportId") Long reportId, @Param("minSize") Long minSize);
+    @Query(SUMMARY_SELECT + "WHERE rf.report.id = :reportId AND rf.sizeBytes > :minSize ORDER BY rf.sizeBytes DESC")
+    List<ReportFileSummary> findByReportIdAndSizeGreaterThan(@Param("reportId") Long reportId, @Param("minSize") Long minSize);
+
+    // Emplacement du contenu d'un fichier (clé BlobStore, contenu partagé), sans charger l'entité
+    @Query("SELECT rf.storageKey AS storageKey, rf.contentId AS contentId FROM ReportFile rf WHERE rf.id = :id")
+    Optional<FileStorageRef> findStorageRefById(@Param("id") Long id);
+
+    // Suppression directe: delete(entity) chargerait d'abord le contenu du fichier
+    @Modifying
+    @Query("DELETE FROM ReportFile rf WHERE rf.id = :id")
+    int deleteFileById(@Param("id") Long id);
 }
@@ -6,12 +6,13 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long> {
-    
+
     List<Report> findTop10ByOrderByCreatedAtDesc();
     
     @Query("SELECT r.createdBy, COUNT(r) FROM Report r GROUP BY r.createdBy")
@@ -19,6 +20,14 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     
     List<Report> findByCreatedBy(String createdBy);
 
+    long countByCreatedAtAfter(Instant since);
+
+    // Rapports créés par jour sur [from, to[ : lignes (jour, nombre), triées par jour
+    @Query(value = "SELECT CAST(created_at AS DATE) AS jour, COUNT(*) FROM reports " +
+                   "WHERE created_at >= :from AND created_at < :to " +
+                   "GROUP BY CAST(created_at AS DATE) ORDER BY jour", nativeQuery = true)
+    List<Object[]> countCreatedByDay(@Param("from") Instant from, @Param("to") Instant to);
+
     Optional<Report> findByCaseId(String caseId);
 }
 
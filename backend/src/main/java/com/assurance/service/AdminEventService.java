@@ -0,0 +1,284 @@
+package com.assurance.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flux d'événements (Server-Sent Events) du tableau de bord administrateur.
+ *
+ * Les services publient un événement par création de dossier, de rapport, de demande d'accès, par traitement
+ * (approbation, rejet, suppression) d'une demande en attente et par connexion/déconnexion. Chaque événement porte
+ * les variations des compteurs du tableau de bord (deltas, négatifs quand une demande quitte l'attente):
+ * le client charge /api/admin/dashboard une fois puis applique les événements reçus.
+ *
+ * Publication après commit (si une transaction est active). Chaque abonné a sa propre file bornée
+ * (app.admin.events.queue-capacity), vidée par un thread du pool d'envoi: un client lent ne bloque ni la requête
+ * qui a produit l'événement ni les autres abonnés. File d'un abonné pleine: il est déconnecté (événements perdus
+ * comptés) et se resynchronise via /api/admin/dashboard en se reconnectant.
+ */
+@Service
+public class AdminEventService {
+    public static final String CASE_CREATED = "case-created";
+    public static final String REPORT_CREATED = "report-created";
+    public static final String ACCESS_REQUEST_CREATED = "access-request-created";
+    public static final String ACCESS_REQUEST_APPROVED = "access-request-approved";
+    public static final String ACCESS_REQUEST_REJECTED = "access-request-rejected";
+    public static final String ACCESS_REQUEST_DELETED = "access-request-deleted";
+    public static final String USER_LOGIN = "user-login";
+    public static final String USER_LOGOUT = "user-logout";
+
+    // Abonné: son flux et les événements pas encore envoyés; draining vaut true tant qu'un thread vide la file
+    private record Subscriber(SseEmitter emitter, BlockingQueue<Event> pending, AtomicBoolean draining) {}
+
+    /**
+     * Événement en attente d'envoi, partagé par les files de tous les abonnés: immuable. Le SseEventBuilder n'est
+     * créé qu'au moment de l'envoi, un par abonné (build() modifie le builder, qui ne peut pas être partagé).
+     */
+    private record Event(String name, String id, Map<String, Object> data, String comment) {
+        static Event of(String name, long id, Map<String, Object> data) {
+            return new Event(name, String.valueOf(id), Collections.unmodifiableMap(data), null);
+        }
+
+        static Event comment(String comment) {
+            return new Event(null, null, null, comment);
+        }
+
+        SseEmitter.SseEventBuilder toSse() {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event();
+            if (comment != null) {
+                builder.comment(comment);
+            }
+            if (name != null) {
+                builder.name(name);
+            }
+            if (id != null) {
+                builder.id(id);
+            }
+            if (data != null) {
+                builder.data(data, MediaType.APPLICATION_JSON);
+            }
+            return builder;
+        }
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor sender;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AdminEventService(@Value("${app.admin.events.timeout-ms}") long timeoutMs,
+                             @Value("${app.admin.events.max-subscribers}") int maxSubscribers,
+                             @Value("${app.admin.events.queue-capacity}") int queueCapacity) {
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        // Au plus une tâche par abonné (voir deliver): un thread par abonné au maximum, libéré après une minute d'inactivité
+        int threads = Math.max(1, maxSubscribers);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            task -> {
+                Thread thread = new Thread(task, "admin-events-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Ouvre un flux pour un administrateur; null si le nombre maximal d'abonnés est atteint.
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(queueCapacity), new AtomicBoolean());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // Premier événement: permet au client de savoir à partir de quel numéro il reçoit les deltas
+        deliver(subscriber, Event.of("connected", sequence.get(), Map.of("subscribers", subscribers.size())));
+        return emitter;
+    }
+
+    // ===== PUBLICATION =====
+
+    public void caseCreated(Long caseId, String company) {
+        publish(CASE_CREATED, fields("id", caseId, "company", orUnknown(company)), Map.of("totalCases", 1L));
+    }
+
+    public void reportCreated(Long reportId, String company) {
+        publish(REPORT_CREATED, fields("id", reportId, "company", orUnknown(company)), Map.of("totalReports", 1L));
+    }
+
+    public void accessRequestCreated(Long requestId, Long reportId, String company) {
+        publish(ACCESS_REQUEST_CREATED, fields("id", requestId, "reportId", reportId, "company", orUnknown(company)),
+            Map.of("totalAccessRequests", 1L, "pendingAccessRequests", 1L));
+    }
+
+    // Demande sortie de l'attente: approuvée, rejetée ou supprimée (la suppression retire aussi la demande du total)
+    public void accessRequestApproved(Long requestId, Long reportId) {
+        publish(ACCESS_REQUEST_APPROVED, fields("id", requestId, "reportId", reportId), Map.of("pendingAccessRequests", -1L));
+    }
+
+    public void accessRequestRejected(Long requestId, Long reportId) {
+        publish(ACCESS_REQUEST_REJECTED, fields("id", requestId, "reportId", reportId), Map.of("pendingAccessRequests", -1L));
+    }
+
+    public void accessRequestDeleted(Long requestId, Long reportId) {
+        publish(ACCESS_REQUEST_DELETED, fields("id", requestId, "reportId", reportId),
+            Map.of("totalAccessRequests", -1L, "pendingAccessRequests", -1L));
+    }
+
+    public void userLoggedIn(String username, String company) {
+        publish(USER_LOGIN, fields("username", username, "company", orUnknown(company)), Map.of());
+    }
+
+    public void userLoggedOut(String username, String company) {
+        publish(USER_LOGOUT, fields("username", username, "company", orUnknown(company)), Map.of());
+    }
+
+    private static String orUnknown(String company) {
+        return company != null ? company : "Inconnu";
+    }
+
+    // Paires clé/valeur, valeurs null acceptées
+    private static Map<String, Object> fields(Object... keyValues) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            fields.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return fields;
+    }
+
+    private void publish(String name, Map<String, Object> payload, Map<String, Long> deltas) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        payload.put("deltas", deltas);
+        payload.put("at", Instant.now().toString());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(name, payload);
+                }
+            });
+        } else {
+            enqueue(name, payload);
+        }
+    }
+
+    private void enqueue(String name, Map<String, Object> payload) {
+        broadcast(Event.of(name, sequence.incrementAndGet(), payload));
+    }
+
+    /**
+     * Commentaire SSE périodique: maintient les connexions ouvertes derrière les proxys
+     * et détecte les clients partis.
+     */
+    @Scheduled(fixedDelayString = "${app.admin.events.heartbeat-ms}")
+    public void heartbeat() {
+        broadcast(Event.comment("ping"));
+    }
+
+    // Ne bloque pas: dépôt dans la file de chaque abonné
+    private void broadcast(Event event) {
+        for (Subscriber subscriber : subscribers) {
+            deliver(subscriber, event);
+        }
+    }
+
+    private void deliver(Subscriber subscriber, Event event) {
+        if (!subscriber.pending().offer(event)) {
+            // Client trop lent: retiré plutôt que de retenir les événements des autres. Son flux est fermé par le thread
+            // qui le vide (drain): complete() attendrait la fin de l'envoi bloqué (SseEmitter est synchronisé)
+            if (subscribers.remove(subscriber)) {
+                dropped.addAndGet(subscriber.pending().size() + 1L);
+                subscriber.pending().clear();
+            }
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Arrêt en cours
+                subscriber.draining().set(false);
+            }
+        }
+    }
+
+    // Envoie les événements en attente d'un abonné, dans l'ordre; un seul thread à la fois par abonné
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                Event event;
+                while ((event = subscriber.pending().poll()) != null) {
+                    try {
+                        subscriber.emitter().send(event.toSse());
+                    } catch (IOException | IllegalStateException e) {
+                        subscribers.remove(subscriber);
+                        subscriber.emitter().completeWithError(e);
+                        return;
+                    }
+                }
+                if (!subscribers.contains(subscriber)) {
+                    // Retiré pour lenteur pendant l'envoi
+                    subscriber.emitter().complete();
+                    return;
+                }
+                subscriber.draining().set(false);
+                // Événement déposé entre le dernier poll et la remise à false: ce thread le reprend
+            } while (!subscriber.pending().isEmpty() && subscriber.draining().compareAndSet(false, true));
+        } catch (RuntimeException e) {
+            // Échec inattendu (sérialisation, ...): l'abonné est fermé plutôt que laissé avec draining bloqué à true
+            System.err.println("Envoi des événements admin interrompu: " + e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.pending().clear();
+            subscriber.draining().set(false);
+            subscriber.emitter().completeWithError(e);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+    }
+}
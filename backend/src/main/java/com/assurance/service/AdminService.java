@@ -1,5 +1,6 @@
 package com.assurance.service;
 
+import com.assurance.domain.DeduplicationStats;
 import com.assurance.domain.InsuranceCase;
 import com.assurance.domain.Report;
 import com.assurance.dto.AdminDashboardDto;
@@ -9,12 +10,25 @@ import com.assurance.dto.ReportDto;
 import com.assurance.dto.UserDto;
 import com.assurance.repo.InsuranceCaseRepository;
 import com.assurance.repo.ReportRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,41 +49,244 @@ public class AdminService {
     @Autowired
     private InsuranceCaseRepository caseRepository;
     
+    @Autowired
+    private FileService fileService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Durée de validité des sections du tableau de bord; les répartitions évoluent lentement
+    @Value("${app.admin.dashboard.ttl-ms}")
+    private long dashboardTtlMs;
+    
+    @Value("${app.admin.dashboard.distribution-ttl-ms}")
+    private long distributionTtlMs;
+    
+    @Value("${app.admin.dashboard.threads}")
+    private int dashboardThreads;
+    
+    private ThreadPoolExecutor dashboardExecutor;
+    private CachedSection<DashboardCounts> countsSection;
+    private CachedSection<RecentData> recentSection;
+    private CachedSection<Distributions> distributionSection;
+    private CachedSection<Presence> presenceSection;
+    
+    /**
+     * Bilan de la déduplication du stockage des fichiers
+     */
+    public DeduplicationStats getDeduplicationStats() {
+        return fileService.getDeduplicationStats();
+    }
+    
     /**
-     * Récupère les données du tableau de bord administrateur
+     * Récupère les données du tableau de bord administrateur.
+     *
+     * Le tableau de bord est découpé en sections (compteurs, données récentes, répartitions, connexions),
+     * chacune mise en cache avec sa propre durée de validité. Une section expirée est recalculée une seule
+     * fois pour tous les appelants concurrents; ses requêtes indépendantes s'exécutent en parallèle sur
+     * un pool borné. Chaque section indique dans le DTO l'instant auquel elle a été calculée.
      */
     public AdminDashboardDto getDashboardData() {
+        CompletableFuture<Snapshot<DashboardCounts>> counts = countsSection.get();
+        CompletableFuture<Snapshot<RecentData>> recent = recentSection.get();
+        CompletableFuture<Snapshot<Distributions>> distributions = distributionSection.get();
+        CompletableFuture<Snapshot<Presence>> presence = presenceSection.get();
+        
         AdminDashboardDto dashboard = new AdminDashboardDto();
+        dashboard.setGeneratedAt(Instant.now());
         
         // Statistiques générales
-        dashboard.setTotalUsers(userService.getTotalUsers());
-        dashboard.setTotalReports(reportRepository.count());
-        dashboard.setTotalCases(caseRepository.count());
-        dashboard.setTotalAccessRequests(reportRequestService.count());
-        dashboard.setPendingAccessRequests(reportRequestService.countPendingRequests());
-        dashboard.setTotalInvitations(invitationService.getTotalInvitations());
-        dashboard.setPendingInvitations(invitationService.getPendingInvitationsCount());
+        Snapshot<DashboardCounts> c = await(counts);
+        dashboard.setTotalUsers(c.value().totalUsers());
+        dashboard.setTotalReports(c.value().totalReports());
+        dashboard.setTotalCases(c.value().totalCases());
+        dashboard.setTotalAccessRequests(c.value().totalAccessRequests());
+        dashboard.setPendingAccessRequests(c.value().pendingAccessRequests());
+        dashboard.setTotalInvitations(c.value().totalInvitations());
+        dashboard.setPendingInvitations(c.value().pendingInvitations());
+        dashboard.setCountsUpdatedAt(c.computedAt());
         
         // Données récentes
-        dashboard.setRecentUsers(userService.getRecentUsers(10));
-        dashboard.setRecentReports(getRecentReports(10));
-        dashboard.setRecentAccessRequests(getRecentReportRequests(10));
-        dashboard.setRecentInvitations(invitationService.getRecentInvitations(10));
+        Snapshot<RecentData> r = await(recent);
+        dashboard.setRecentUsers(r.value().users());
+        dashboard.setRecentReports(r.value().reports());
+        dashboard.setRecentAccessRequests(r.value().accessRequests());
+        dashboard.setRecentInvitations(r.value().invitations());
+        dashboard.setRecentUpdatedAt(r.computedAt());
         
         // Statistiques par compagnie
-        dashboard.setReportsByCompany(getReportsByCompany());
-        dashboard.setCasesByStatus(getCasesByStatus());
-        dashboard.setCasesByCompany(getCasesByCompany());
-        dashboard.setUsersByCompany(userService.getUsersByCompany());
+        Snapshot<Distributions> d = await(distributions);
+        dashboard.setReportsByCompany(d.value().reportsByCompany());
+        dashboard.setCasesByStatus(d.value().casesByStatus());
+        dashboard.setCasesByCompany(d.value().casesByCompany());
+        dashboard.setUsersByCompany(d.value().usersByCompany());
+        dashboard.setDistributionsUpdatedAt(d.computedAt());
         
         // Utilisateurs connectés
-        dashboard.setOnlineUsers(userService.getOnlineUsers(2)); // Connectés dans les 2 dernières heures
-        dashboard.setRecentlyLoggedIn(userService.getRecentlyLoggedIn(24)); // Connectés dans les 24h
-        dashboard.setRecentlyLoggedOut(userService.getRecentlyLoggedOut(24)); // Déconnectés dans les 24h
+        Snapshot<Presence> p = await(presence);
+        dashboard.setOnlineUsers(p.value().online());
+        dashboard.setRecentlyLoggedIn(p.value().loggedIn());
+        dashboard.setRecentlyLoggedOut(p.value().loggedOut());
+        dashboard.setPresenceUpdatedAt(p.computedAt());
         
         return dashboard;
     }
     
+    @PostConstruct
+    void initDashboard() {
+        AtomicInteger threadCount = new AtomicInteger();
+        dashboardExecutor = new ThreadPoolExecutor(dashboardThreads, dashboardThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(64),
+            task -> {
+                Thread thread = new Thread(task, "admin-dashboard-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            // File pleine: la requête s'exécute dans le thread appelant plutôt que d'être rejetée
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        dashboardExecutor.allowCoreThreadTimeOut(true);
+        
+        countsSection = new CachedSection<>(dashboardTtlMs, () -> async(this::loadCounts));
+        recentSection = new CachedSection<>(dashboardTtlMs, this::loadRecentData);
+        distributionSection = new CachedSection<>(distributionTtlMs, this::loadDistributions);
+        presenceSection = new CachedSection<>(dashboardTtlMs, this::loadPresence);
+    }
+    
+    @PreDestroy
+    void shutdownDashboard() {
+        dashboardExecutor.shutdownNow();
+    }
+    
+    /**
+     * Les sept compteurs en une seule requête (sous-requêtes scalaires)
+     */
+    private DashboardCounts loadCounts() {
+        return jdbcTemplate.queryForObject(
+            "SELECT (SELECT COUNT(*) FROM users), " +
+            "(SELECT COUNT(*) FROM reports), " +
+            "(SELECT COUNT(*) FROM insurance_cases), " +
+            "(SELECT COUNT(*) FROM report_requests), " +
+            "(SELECT COUNT(*) FROM report_requests WHERE status = 'PENDING'), " +
+            "(SELECT COUNT(*) FROM invitations), " +
+            "(SELECT COUNT(*) FROM invitations WHERE status = 'PENDING')",
+            (rs, rowNum) -> new DashboardCounts(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7)));
+    }
+    
+    private CompletableFuture<RecentData> loadRecentData() {
+        CompletableFuture<List<UserDto>> users = async(() -> userService.getRecentUsers(10));
+        CompletableFuture<List<ReportDto>> reports = async(() -> getRecentReports(10));
+        CompletableFuture<List<ReportRequestDto>> requests = async(() -> getRecentReportRequests(10));
+        CompletableFuture<List<InvitationDto>> invitations = async(() -> invitationService.getRecentInvitations(10));
+        return CompletableFuture.allOf(users, reports, requests, invitations)
+            .thenApply(done -> new RecentData(users.join(), reports.join(), requests.join(), invitations.join()));
+    }
+    
+    private CompletableFuture<Distributions> loadDistributions() {
+        CompletableFuture<Map<String, Long>> reports = async(this::getReportsByCompany);
+        CompletableFuture<Map<String, Long>> statuses = async(this::getCasesByStatus);
+        CompletableFuture<Map<String, Long>> cases = async(this::getCasesByCompany);
+        CompletableFuture<Map<String, Long>> users = async(userService::getUsersByCompany);
+        return CompletableFuture.allOf(reports, statuses, cases, users)
+            .thenApply(done -> new Distributions(reports.join(), statuses.join(), cases.join(), users.join()));
+    }
+    
+    private CompletableFuture<Presence> loadPresence() {
+        CompletableFuture<List<UserDto>> online = async(() -> userService.getOnlineUsers(2)); // Connectés dans les 2 dernières heures
+        CompletableFuture<List<UserDto>> loggedIn = async(() -> userService.getRecentlyLoggedIn(24)); // Connectés dans les 24h
+        CompletableFuture<List<UserDto>> loggedOut = async(() -> userService.getRecentlyLoggedOut(24)); // Déconnectés dans les 24h
+        return CompletableFuture.allOf(online, loggedIn, loggedOut)
+            .thenApply(done -> new Presence(online.join(), loggedIn.join(), loggedOut.join()));
+    }
+    
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, dashboardExecutor);
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+    
+    private record DashboardCounts(long totalUsers, long totalReports, long totalCases, long totalAccessRequests,
+                                   long pendingAccessRequests, long totalInvitations, long pendingInvitations) {}
+    
+    private record RecentData(List<UserDto> users, List<ReportDto> reports,
+                              List<ReportRequestDto> accessRequests, List<InvitationDto> invitations) {}
+    
+    private record Distributions(Map<String, Long> reportsByCompany, Map<String, Long> casesByStatus,
+                                 Map<String, Long> casesByCompany, Map<String, Long> usersByCompany) {}
+    
+    private record Presence(List<UserDto> online, List<UserDto> loggedIn, List<UserDto> loggedOut) {}
+    
+    private record Snapshot<T>(T value, Instant computedAt) {}
+    
+    /**
+     * Section du tableau de bord en cache. Tant que la valeur a moins de ttlMs elle est servie telle quelle;
+     * sinon le premier appelant lance le calcul et les appelants concurrents attendent ce même calcul.
+     * En cas d'échec, la dernière valeur connue est servie (son horodatage reflète son ancienneté).
+     */
+    private static final class CachedSection<T> {
+        private final long ttlMs;
+        private final Supplier<CompletableFuture<T>> loader;
+        private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+        private final AtomicReference<CompletableFuture<Snapshot<T>>> inFlight = new AtomicReference<>();
+        
+        CachedSection(long ttlMs, Supplier<CompletableFuture<T>> loader) {
+            this.ttlMs = ttlMs;
+            this.loader = loader;
+        }
+        
+        CompletableFuture<Snapshot<T>> get() {
+            while (true) {
+                Snapshot<T> snapshot = current.get();
+                if (snapshot != null && snapshot.computedAt().plusMillis(ttlMs).isAfter(Instant.now())) {
+                    return CompletableFuture.completedFuture(snapshot);
+                }
+                CompletableFuture<Snapshot<T>> running = inFlight.get();
+                if (running != null) {
+                    return running;
+                }
+                CompletableFuture<Snapshot<T>> refresh = new CompletableFuture<>();
+                if (inFlight.compareAndSet(null, refresh)) {
+                    load(refresh);
+                    return refresh;
+                }
+            }
+        }
+        
+        private void load(CompletableFuture<Snapshot<T>> refresh) {
+            Instant startedAt = Instant.now();
+            CompletableFuture<T> value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException e) {
+                value = CompletableFuture.failedFuture(e);
+            }
+            value.whenComplete((result, error) -> {
+                Snapshot<T> previous = current.get();
+                if (error == null) {
+                    Snapshot<T> snapshot = new Snapshot<>(result, startedAt);
+                    current.set(snapshot);
+                    inFlight.set(null);
+                    refresh.complete(snapshot);
+                } else {
+                    inFlight.set(null);
+                    System.err.println("Tableau de bord: calcul d'une section impossible: " + error.getMessage());
+                    if (previous != null) {
+                        refresh.complete(previous);
+                    } else {
+                        refresh.completeExceptionally(error);
+                    }
+                }
+            });
+        }
+    }
+    
     /**
      * Récupère les rapports récents
      */
@@ -0,0 +1,126 @@
+package com.assurance.service;
+
+import com.assurance.domain.AuditEvent;
+import com.assurance.domain.AuditEventRow;
+import com.assurance.web.dto.KeysetPage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consultation de l'historique des événements d'audit: pages par clé (atiso, id) décroissante et export CSV.
+ *
+ * La requête ne contient que les filtres fournis (pas de "? IS NULL OR ..."), pour que la base puisse utiliser
+ * l'index correspondant, lu dans l'ordre de tri: (type, atiso, id), (actor, atiso, id) ou (atiso, id), décroissants.
+ * Une période bornée ne lit que les partitions concernées (voir partitionnement_audit.sql).
+ */
+@Service
+public class AuditEventQueryService {
+    public static final int MAX_PAGE_SIZE = 200;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Filtres optionnels (null: ignoré); période [from, to[, messagePrefix: début du message, sensible à la casse.
+     */
+    public record Filter(AuditEvent.EventType type, String actor, String messagePrefix, Instant from, Instant to) {}
+
+    public AuditEventQueryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * limit est ramené dans [1, MAX_PAGE_SIZE]. IllegalArgumentException si le curseur est invalide.
+     */
+    public KeysetPage<AuditEventRow> list(Filter filter, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetPage.Cursor after = KeysetPage.decodeCursor(cursor);
+        List<AuditEventRow> rows = findPage(filter, after != null ? after.createdAt() : null, after != null ? after.id() : null, size + 1);
+        return KeysetPage.of(rows, size, AuditEventRow::atISO, AuditEventRow::id);
+    }
+
+    /**
+     * Écrit tous les événements correspondant aux filtres en CSV (mêmes colonnes que les archives de rétention),
+     * par pages de EXPORT_PAGE_SIZE: la mémoire utilisée ne dépend pas du nombre de lignes exportées.
+     * Retourne le nombre de lignes écrites.
+     */
+    public long exportCsv(Filter filter, Writer out) throws IOException {
+        out.write("id,type,actor,message,atiso\n");
+        long count = 0;
+        Instant cursorAt = null;
+        Long cursorId = null;
+        while (true) {
+            List<AuditEventRow> rows = findPage(filter, cursorAt, cursorId, EXPORT_PAGE_SIZE);
+            for (AuditEventRow event : rows) {
+                out.write(event.id() + "," + event.type().name() + "," + AuditPartitionService.csv(event.actor()) + "," +
+                    AuditPartitionService.csv(event.message()) + "," + event.atISO() + "\n");
+            }
+            count += rows.size();
+            out.flush();
+            if (rows.size() < EXPORT_PAGE_SIZE) {
+                return count;
+            }
+            AuditEventRow last = rows.get(rows.size() - 1);
+            cursorAt = last.atISO();
+            cursorId = last.id();
+        }
+    }
+
+    private List<AuditEventRow> findPage(Filter filter, Instant cursorAt, Long cursorId, int size) {
+        StringBuilder sql = new StringBuilder("SELECT id, type, actor, message, atiso FROM audit_events WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.type() != null) {
+            sql.append(" AND type = ?");
+            args.add(filter.type().name());
+        }
+        String actor = blankToNull(filter.actor());
+        if (actor != null) {
+            sql.append(" AND actor = ?");
+            args.add(actor);
+        }
+        String messagePattern = prefixPattern(filter.messagePrefix());
+        if (messagePattern != null) {
+            sql.append(" AND message LIKE ? ESCAPE '!'");
+            args.add(messagePattern);
+        }
+        if (filter.from() != null) {
+            sql.append(" AND atiso >= ?");
+            args.add(Timestamp.from(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND atiso < ?");
+            args.add(Timestamp.from(filter.to()));
+        }
+        if (cursorAt != null) {
+            // Équivaut à (atiso, id) < (cursorAt, cursorId), écrit avec une borne simple sur atiso pour l'index
+            sql.append(" AND atiso <= ? AND (atiso < ? OR id < ?)");
+            args.add(Timestamp.from(cursorAt));
+            args.add(Timestamp.from(cursorAt));
+            args.add(cursorId);
+        }
+        sql.append(" ORDER BY atiso DESC, id DESC LIMIT ?");
+        args.add(size);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new AuditEventRow(rs.getLong(1),
+            AuditEvent.EventType.valueOf(rs.getString(2)), rs.getString(3), rs.getString(4), rs.getTimestamp(5).toInstant()),
+            args.toArray());
+    }
+
+    // Motif LIKE 'prefixe%', caractères spéciaux échappés par '!'
+    private static String prefixPattern(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,332 @@
+package com.assurance.service;
+
+import com.assurance.domain.AuditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture des événements d'audit en arrière-plan.
+ *
+ * Les services appellent record(): l'événement est placé (après commit si une transaction est active) dans
+ * une file bornée, vidée par un thread dédié en INSERT groupés (JDBC batch). Les agrégats des statistiques
+ * sont mis à jour dans la même transaction que le lot, comme le fait StatsRollupListener pour une écriture JPA.
+ *
+ * File pleine: l'appelant attend au plus offer-timeout-ms, puis écrit l'événement lui-même dans sa propre transaction
+ * (aucune perte, la latence n'augmente que sous surcharge); au-delà de CALLER_WRITE_SLOTS appelants simultanés,
+ * l'événement part directement dans le fichier de reprise. Échec d'écriture: le lot est ajouté au fichier de reprise
+ * (une ligne JSON par événement), relu au démarrage puis périodiquement tant qu'il existe.
+ */
+@Service
+public class AuditEventWriter {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long POLL_MS = 1000;
+    private static final long SHUTDOWN_WAIT_MS = 10000;
+    private static final int MESSAGE_MAX = 512;
+    private static final int ACTOR_MAX = 128;
+    // Écritures simultanées par les appelants. Depuis afterCommit(), chacune prend une seconde connexion: non borné,
+    // des appelants détenant tout le pool attendraient chacun une connexion supplémentaire
+    private static final int CALLER_WRITE_SLOTS = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsRollupService statsRollupService;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final Path spoolFile;
+    private final long spoolRetryMs;
+    private final Object spoolLock = new Object();
+    private final Semaphore callerWriteSlots = new Semaphore(CALLER_WRITE_SLOTS);
+    private Thread worker;
+    private volatile boolean running = true;
+    private long lastReplay;
+
+    private final Timer flushTimer;
+    private final Counter written;
+    private final Counter callerWrites;
+    private final Counter spooled;
+
+    /**
+     * Événement tel qu'écrit dans le fichier de reprise.
+     */
+    record SpooledEvent(String type, String actor, String message, String at) {}
+
+    public AuditEventWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            StatsRollupService statsRollupService, MeterRegistry meterRegistry,
+                            @Value("${app.audit.queue-capacity}") int queueCapacity,
+                            @Value("${app.audit.batch-size}") int batchSize,
+                            @Value("${app.audit.offer-timeout-ms}") long offerTimeoutMs,
+                            @Value("${app.audit.spool-file}") String spoolFile,
+                            @Value("${app.audit.spool-retry-ms}") long spoolRetryMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Écriture par l'appelant (file pleine) depuis afterCommit(): la transaction appelante est terminée mais encore
+        // liée au thread, une propagation REQUIRED s'y joindrait sans jamais valider. Le lot a donc la sienne
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.statsRollupService = statsRollupService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.spoolFile = Paths.get(spoolFile);
+        this.spoolRetryMs = spoolRetryMs;
+
+        Gauge.builder("audit.queue.size", queue, BlockingQueue::size)
+            .description("Événements d'audit en attente d'écriture").register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.flush")
+            .description("Durée d'écriture d'un lot d'événements d'audit").register(meterRegistry);
+        this.written = Counter.builder("audit.events.written").register(meterRegistry);
+        this.callerWrites = Counter.builder("audit.events.caller.writes")
+            .description("Événements écrits par l'appelant, file pleine").register(meterRegistry);
+        this.spooled = Counter.builder("audit.events.spooled")
+            .description("Événements placés dans le fichier de reprise").register(meterRegistry);
+    }
+
+    /**
+     * Démarre le thread d'écriture une fois le contexte prêt, après la création des partitions d'audit
+     * (AuditPartitionService) et la reconstruction des agrégats (StatsRollupService): la première relecture du
+     * fichier de reprise écrit dans les deux. Les événements enregistrés avant attendent dans la file.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public synchronized void start() {
+        if (worker != null || !running) {
+            return;
+        }
+        worker = new Thread(this::run, "audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // ===== PUBLICATION =====
+
+    public void record(AuditEvent.EventType type, String actor, String message) {
+        AuditEvent event = new AuditEvent();
+        event.setType(type);
+        event.setActor(truncate(actor != null ? actor : "Inconnu", ACTOR_MAX));
+        event.setMessage(truncate(message != null ? message : "", MESSAGE_MAX));
+        event.setAtISO(Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    private void enqueue(AuditEvent event) {
+        try {
+            if (running && queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // File pleine (ou arrêt en cours): écriture par l'appelant, ou reprise ultérieure si trop d'appelants écrivent déjà
+        if (!callerWriteSlots.tryAcquire()) {
+            spool(List.of(event));
+            return;
+        }
+        try {
+            callerWrites.increment();
+            flush(List.of(event));
+        } finally {
+            callerWriteSlots.release();
+        }
+    }
+
+    // ===== ÉCRITURE =====
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpoolIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+                replaySpoolIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Audit: erreur inattendue du thread d'écriture: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Écrit un lot dans une transaction (événements + agrégats); en cas d'échec le lot part dans le fichier de reprise.
+     * Retourne false si le lot n'a pas pu être écrit en base.
+     */
+    private boolean flush(List<AuditEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> rows = new ArrayList<>(batch.size());
+                for (AuditEvent event : batch) {
+                    rows.add(new Object[]{event.getType().name(), event.getMessage(), event.getActor(),
+                        Timestamp.from(event.getAtISO())});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO audit_events (type, message, actor, atiso) VALUES (?, ?, ?, ?)", rows);
+                statsRollupService.recordAuditEvents(batch);
+            });
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            written.increment(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Audit: échec d'écriture de " + batch.size() + " événement(s), ajout au fichier de reprise: " + e.getMessage());
+            spool(batch);
+            return false;
+        }
+    }
+
+    // ===== FICHIER DE REPRISE =====
+
+    private void spool(List<AuditEvent> events) {
+        synchronized (spoolLock) {
+            try {
+                Path parent = spoolFile.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try (BufferedWriter out = Files.newBufferedWriter(spoolFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (AuditEvent event : events) {
+                        out.write(MAPPER.writeValueAsString(new SpooledEvent(event.getType().name(), event.getActor(),
+                            event.getMessage(), event.getAtISO().toString())));
+                        out.newLine();
+                    }
+                }
+                spooled.increment(events.size());
+            } catch (IOException e) {
+                System.err.println("Audit: " + events.size() + " événement(s) perdu(s), fichier de reprise inaccessible: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Relit le fichier de reprise (au démarrage puis au plus une fois toutes les spool-retry-ms) et réécrit ses événements
+     * par lots. Le fichier est retiré avant l'écriture: un lot qui échoue à nouveau y est remis, les suivants aussi.
+     */
+    private void replaySpoolIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastReplay < spoolRetryMs) {
+            return;
+        }
+        lastReplay = now;
+        List<AuditEvent> events = new ArrayList<>();
+        synchronized (spoolLock) {
+            if (!Files.exists(spoolFile)) {
+                return;
+            }
+            try {
+                for (String line : Files.readAllLines(spoolFile, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        SpooledEvent spooledEvent = MAPPER.readValue(line, SpooledEvent.class);
+                        AuditEvent event = new AuditEvent();
+                        event.setType(AuditEvent.EventType.valueOf(spooledEvent.type()));
+                        event.setActor(spooledEvent.actor());
+                        event.setMessage(spooledEvent.message());
+                        event.setAtISO(Instant.parse(spooledEvent.at()));
+                        events.add(event);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Audit: ligne ignorée dans le fichier de reprise: " + line);
+                    }
+                }
+                Files.delete(spoolFile);
+            } catch (IOException e) {
+                System.err.println("Audit: lecture du fichier de reprise impossible: " + e.getMessage());
+                return;
+            }
+        }
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<AuditEvent> batch = events.subList(from, Math.min(from + batchSize, events.size()));
+            if (!flush(batch)) {
+                spool(events.subList(from + batch.size(), events.size()));
+                return;
+            }
+        }
+        if (!events.isEmpty()) {
+            System.out.println("Audit: " + events.size() + " événement(s) repris depuis " + spoolFile);
+        }
+    }
+
+    private static String truncate(String value, int max) {
+        return value.length() <= max ? value : value.substring(0, max);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Arrêt: plus d'ajout dans la file (les appelants écrivent eux-mêmes), le thread vide la file puis s'arrête.
+     * Ce qui reste après SHUTDOWN_WAIT_MS part dans le fichier de reprise.
+     */
+    @PreDestroy
+    void shutdown() {
+        Thread started;
+        synchronized (this) {
+            running = false;
+            started = worker;
+        }
+        try {
+            // Arrêt avant la fin du démarrage: pas de thread, la file part directement dans le fichier de reprise
+            if (started != null) {
+                started.join(SHUTDOWN_WAIT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spool(remaining);
+        }
+    }
+}
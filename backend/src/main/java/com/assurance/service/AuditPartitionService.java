@@ -0,0 +1,250 @@
+package com.assurance.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Partitions mensuelles et rétention de la table audit_events.
+ *
+ * PostgreSQL, table partitionnée par mois sur atiso (voir partitionnement_audit.sql): chaque jour, les partitions
+ * du mois courant et des MONTHS_AHEAD mois suivants sont créées si besoin, pour que la partition par défaut reste vide.
+ *
+ * Rétention (app.audit.retention.months > 0): chaque mois entièrement plus ancien que la limite est exporté dans
+ * archive-dir (audit_events_AAAA-MM.csv.gz), puis sa partition est détachée et supprimée (ou ses lignes supprimées si
+ * la table n'est pas partitionnée). La suppression n'a lieu que si le nombre de lignes n'a pas changé depuis l'export.
+ * Les agrégats de stats_counters ne sont pas touchés: les totaux des statistiques incluent les événements archivés.
+ */
+@Service
+public class AuditPartitionService {
+    static final int MONTHS_AHEAD = 3;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionMonths;
+    private final Path archiveDir;
+    private volatile Boolean partitioned;
+
+    public AuditPartitionService(JdbcTemplate jdbcTemplate, DataSource dataSource, TransactionTemplate transactionTemplate,
+                                 @Value("${app.audit.retention.months}") int retentionMonths,
+                                 @Value("${app.audit.retention.archive-dir}") String archiveDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Paths.get(archiveDir);
+        // Export en flux: PostgreSQL ne lit par paquets qu'avec un fetch size, dans une transaction
+        this.exportTemplate = new JdbcTemplate(dataSource);
+        this.exportTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    // Avant le démarrage du thread d'écriture de AuditEventWriter (Ordered.LOWEST_PRECEDENCE)
+    @Order(0)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.audit.retention.cron}")
+    public synchronized void maintain() {
+        try {
+            if (isPartitioned()) {
+                createUpcomingPartitions();
+            }
+            if (retentionMonths > 0) {
+                applyRetention();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Audit: maintenance des partitions impossible: " + e.getMessage());
+        }
+    }
+
+    // ===== PARTITIONS =====
+
+    boolean isPartitioned() {
+        if (partitioned == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            partitioned = "PostgreSQL".equalsIgnoreCase(product) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('audit_events'))",
+                Boolean.class));
+        }
+        return partitioned;
+    }
+
+    private void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= MONTHS_AHEAD; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                    " PARTITION OF audit_events FOR VALUES FROM ('" + boundary(month) + "') TO ('" + boundary(month.plusMonths(1)) + "')");
+            } catch (DataAccessException e) {
+                // Typiquement: des lignes de ce mois sont déjà dans la partition par défaut (voir partitionnement_audit.sql)
+                System.err.println("Audit: création de la partition " + partitionName(month) + " impossible: " + e.getMessage());
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return "audit_events_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    // Bornes en UTC, au format accepté par PostgreSQL pour timestamptz
+    private static String boundary(YearMonth month) {
+        return month.atDay(1) + " 00:00:00+00";
+    }
+
+    // ===== RÉTENTION =====
+
+    /**
+     * Archive puis supprime, du plus ancien au plus récent, les mois antérieurs à la limite de rétention.
+     * Un mois en échec interrompt le passage: il sera retenté au prochain.
+     */
+    private void applyRetention() {
+        YearMonth cutoff = YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+        for (YearMonth month : expiredMonths(cutoff)) {
+            try {
+                long exported = export(month);
+                long removed = remove(month, exported);
+                if (removed == 0 && !isPartitioned()) {
+                    continue;
+                }
+                System.out.println("Audit: " + removed + " événement(s) de " + month + " archivés dans " + archiveFile(month));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Audit: archivage de " + month + " impossible: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private List<YearMonth> expiredMonths(YearMonth cutoff) {
+        List<YearMonth> months = new ArrayList<>();
+        if (isPartitioned()) {
+            // Partitions mensuelles attachées (la partition par défaut n'est jamais archivée)
+            for (String name : jdbcTemplate.queryForList(
+                    "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = to_regclass('audit_events') AND c.relname ~ '^audit_events_p[0-9]{6}$' ORDER BY c.relname",
+                    String.class)) {
+                YearMonth month = YearMonth.parse(name.substring("audit_events_p".length()), PARTITION_SUFFIX);
+                if (month.isBefore(cutoff)) {
+                    months.add(month);
+                }
+            }
+        } else {
+            Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(atiso) FROM audit_events", Timestamp.class);
+            if (oldest != null) {
+                for (YearMonth month = YearMonth.from(oldest.toInstant().atOffset(ZoneOffset.UTC)); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                    months.add(month);
+                }
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Écrit les événements du mois dans un fichier CSV compressé (fichier temporaire puis renommage).
+     * Retourne le nombre de lignes exportées.
+     */
+    private long export(YearMonth month) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveFile(month);
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long[] count = {0};
+        try (OutputStream file = Files.newOutputStream(temp);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("id,type,actor,message,atiso");
+            out.newLine();
+            transactionTemplate.executeWithoutResult(status -> exportTemplate.query(
+                "SELECT id, type, actor, message, atiso FROM audit_events WHERE atiso >= ? AND atiso < ? ORDER BY id",
+                rs -> {
+                    try {
+                        out.write(rs.getLong(1) + "," + csv(rs.getString(2)) + "," + csv(rs.getString(3)) + "," +
+                            csv(rs.getString(4)) + "," + rs.getTimestamp(5).toInstant());
+                        out.newLine();
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Écriture de l'archive impossible: " + e.getMessage(), e);
+                    }
+                    count[0]++;
+                },
+                start(month), start(month.plusMonths(1))));
+        }
+        if (count[0] == 0 && !isPartitioned()) {
+            // Mois sans événement (table non partitionnée): pas d'archive
+            Files.delete(temp);
+            return 0;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    /**
+     * Supprime le mois archivé, dans une transaction, si son nombre de lignes est toujours celui de l'export.
+     */
+    private long remove(YearMonth month, long exported) {
+        return transactionTemplate.execute(status -> {
+            long removed;
+            if (isPartitioned()) {
+                String partition = partitionName(month);
+                jdbcTemplate.execute("LOCK TABLE " + partition + " IN ACCESS EXCLUSIVE MODE");
+                removed = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+                if (removed == exported) {
+                    jdbcTemplate.execute("ALTER TABLE audit_events DETACH PARTITION " + partition);
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                }
+            } else {
+                removed = jdbcTemplate.update("DELETE FROM audit_events WHERE atiso >= ? AND atiso < ?",
+                    start(month), start(month.plusMonths(1)));
+            }
+            if (removed != exported) {
+                throw new IllegalStateException(exported + " ligne(s) exportée(s) mais " + removed + " à supprimer, nouvel essai au prochain passage");
+            }
+            return removed;
+        });
+    }
+
+    Path archiveFile(YearMonth month) {
+        return archiveDir.resolve("audit_events_" + month + ".csv.gz");
+    }
+
+    private static Timestamp start(YearMonth month) {
+        return Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
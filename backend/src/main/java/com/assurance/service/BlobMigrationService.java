@@ -0,0 +1,97 @@
+package com.assurance.service;
+
+import com.assurance.service.storage.BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Déplace en tâche de fond le contenu des fichiers encore stockés en BYTEA vers le BlobStore.
+ *
+ * Chaque exécution traite un lot par table; chaque ligne est migrée indépendamment (lecture par
+ * tranches, écriture du blob, puis UPDATE qui vide cipher_text). Les octets sont copiés tels quels:
+ * le contenu chiffré reste chiffré et l'IV reste dans la ligne.
+ * Activé par app.blob.migration.enabled=true (APP_BLOB_MIGRATE), nécessite app.blob.store=local|s3.
+ */
+@Service
+@ConditionalOnProperty(name = "app.blob.migration.enabled", havingValue = "true")
+public class BlobMigrationService {
+    private static final List<String> TABLES = List.of("report_files", "case_attachments", "file_contents");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    // Dernier id examiné par table: une ligne en erreur ne bloque pas la progression du lot suivant
+    private final Map<String, Long> lastIdByTable = new ConcurrentHashMap<>();
+
+    public BlobMigrationService(JdbcTemplate jdbcTemplate, BlobStore blobStore, TransactionTemplate transactionTemplate,
+                                @Value("${app.blob.migration.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.blob.migration.delay-ms}", fixedDelayString = "${app.blob.migration.delay-ms}")
+    public void migrateNextBatch() {
+        for (String table : TABLES) {
+            migrateBatch(table);
+        }
+    }
+
+    int migrateBatch(String table) {
+        long lastId = lastIdByTable.getOrDefault(table, 0L);
+        List<Long> ids = jdbcTemplate.queryForList(
+            "SELECT id FROM " + table + " WHERE storage_key IS NULL AND cipher_text IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+            Long.class, lastId, batchSize);
+
+        if (ids.isEmpty()) {
+            // Fin de passe: la suivante reprendra les lignes éventuellement en échec
+            lastIdByTable.put(table, 0L);
+            return 0;
+        }
+
+        int migrated = 0;
+        for (Long id : ids) {
+            try (InputStream content = new ByteaChunkInputStream(jdbcTemplate, table, id, ByteaChunkInputStream.DEFAULT_CHUNK_SIZE)) {
+                String key = blobStore.put(content);
+                migrated += transactionTemplate.execute(status -> {
+                    // Un contenu non chiffré a la clé d'un upload identique: une suppression de ce blob a pu avoir lieu
+                    // entre l'écriture et le verrou. Sous le verrou (jusqu'au commit), le blob doit encore exister.
+                    FileService.lockBlobKey(jdbcTemplate, key, true);
+                    if (!blobExists(key)) {
+                        throw new IllegalStateException("blob " + key + " supprimé pendant la migration, nouvel essai à la passe suivante");
+                    }
+                    return jdbcTemplate.update(
+                        "UPDATE " + table + " SET storage_key = ?, cipher_text = NULL WHERE id = ? AND storage_key IS NULL",
+                        key, id);
+                });
+            } catch (Exception e) {
+                System.err.println("Migration du contenu " + table + "#" + id + " impossible: " + e.getMessage());
+            }
+            lastIdByTable.put(table, id);
+        }
+
+        System.out.println("Migration BlobStore: " + migrated + "/" + ids.size() + " contenus déplacés depuis " + table);
+        return migrated;
+    }
+
+    private boolean blobExists(String key) {
+        try {
+            return blobStore.exists(key);
+        } catch (IOException e) {
+            throw new IllegalStateException("Vérification du blob " + key + " impossible: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.assurance.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lit une colonne BYTEA par tranches (substring côté PostgreSQL) au lieu de charger la valeur entière.
+ * Chaque tranche est récupérée avec une connexion empruntée au pool puis rendue immédiatement,
+ * de sorte qu'un téléchargement lent ne monopolise pas de connexion.
+ */
+class ByteaChunkInputStream extends InputStream {
+    static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final Long id;
+    private final int chunkSize;
+
+    private long position;
+    private byte[] chunk = new byte[0];
+    private int index;
+    private boolean eof;
+
+    /**
+     * @param table  table contenant la colonne cipher_text (valeur constante, jamais issue de la requête HTTP)
+     */
+    ByteaChunkInputStream(JdbcTemplate jdbcTemplate, String table, Long id, int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = "SELECT substring(cipher_text FROM ? FOR ?) FROM " + table + " WHERE id = ?";
+        this.id = id;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) return -1;
+        return chunk[index++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!ensureChunk()) return -1;
+        int n = Math.min(len, chunk.length - index);
+        System.arraycopy(chunk, index, b, off, n);
+        index += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || eof) return 0;
+        long buffered = chunk.length - index;
+        if (n <= buffered) {
+            index += (int) n;
+            return n;
+        }
+        // Sauter sans lire: la prochaine tranche démarrera directement au bon décalage
+        index = chunk.length;
+        position += n - buffered;
+        return n;
+    }
+
+    private boolean ensureChunk() throws IOException {
+        if (index < chunk.length) return true;
+        if (eof) return false;
+        try {
+            // substring est indexé à partir de 1. PostgreSQL ne définit que substring(bytea, int, int): un long serait
+            // transmis en int8, sans conversion implicite vers int4 (une valeur BYTEA ne dépasse pas 1 Go)
+            byte[] next = jdbcTemplate.queryForObject(sql, byte[].class, Math.toIntExact(position + 1), chunkSize, id);
+            chunk = next != null ? next : new byte[0];
+        } catch (Exception e) {
+            throw new IOException("Lecture du contenu du fichier impossible", e);
+        }
+        index = 0;
+        position += chunk.length;
+        if (chunk.length < chunkSize) eof = true;
+        return chunk.length > 0;
+    }
+}
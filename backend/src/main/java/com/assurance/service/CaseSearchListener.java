@@ -0,0 +1,31 @@
+package com.assurance.service;
+
+import com.assurance.domain.InsuranceCase;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA (InsuranceCase) qui tient à jour les termes de recherche du dossier, dans la transaction
+ * qui écrit le dossier.
+ */
+@Component
+public class CaseSearchListener {
+    private final CaseSearchService caseSearchService;
+
+    public CaseSearchListener(CaseSearchService caseSearchService) {
+        this.caseSearchService = caseSearchService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(InsuranceCase insuranceCase) {
+        caseSearchService.index(insuranceCase.getId(), insuranceCase.getDataJson());
+    }
+
+    @PostRemove
+    public void onRemove(InsuranceCase insuranceCase) {
+        caseSearchService.remove(insuranceCase.getId());
+    }
+}
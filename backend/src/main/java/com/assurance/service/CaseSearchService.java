@@ -0,0 +1,372 @@
+package com.assurance.service;
+
+import com.assurance.domain.CaseSummary;
+import com.assurance.domain.InsuranceCase;
+import com.assurance.web.dto.KeysetPage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Recherche des dossiers par champ de leur dataJson, exécutée en base sur la table case_search_terms.
+ *
+ * À chaque écriture d'un dossier (voir CaseSearchListener), son JSON est aplati en couples
+ * (chemin des clés, valeur normalisée). Une recherche combine un ou plusieurs critères "champ:valeur"
+ * (égalité) ou "champ:début*" (préfixe), tous obligatoires; chaque critère est résolu par l'index
+ * (field, term). Les résultats sont des résumés de dossiers paginés comme la liste des dossiers.
+ */
+@Service
+public class CaseSearchService {
+    public static final int MAX_CRITERIA = 5;
+    static final String MARKER_FIELD = "$";
+
+    private static final int MAX_TERMS_PER_CASE = 500;
+    private static final int MAX_FIELD_LENGTH = 128;
+    private static final int MAX_TERM_LENGTH = 255;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int SELECTIVITY_PROBE_LIMIT = 1000;
+    private static final Pattern FIELD_PATTERN = Pattern.compile("[A-Za-z0-9_.]{1," + MAX_FIELD_LENGTH + "}");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Un terme n'apparaît qu'une fois par dossier: garantit qu'une indexation concurrente ne duplique rien
+    static final String UNIQUE_INDEX = "uk_case_search_terms_case_field_term";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // @Lazy: ce service est une dépendance de CaseSearchListener, créé avec l'EntityManagerFactory dont dépend
+    // le gestionnaire de transactions
+    public CaseSearchService(JdbcTemplate jdbcTemplate, @Lazy PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Critère de recherche: "champ:valeur" pour une égalité, "champ:début*" pour un préfixe.
+     */
+    public record Criterion(String field, String value, boolean prefix) {
+        public static Criterion parse(String query) {
+            int separator = query == null ? -1 : query.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Critère invalide (attendu champ:valeur ou champ:début*): " + query);
+            }
+            String field = query.substring(0, separator).trim();
+            String value = query.substring(separator + 1);
+            if (!FIELD_PATTERN.matcher(field).matches()) {
+                throw new IllegalArgumentException("Champ de recherche invalide: " + field);
+            }
+            boolean prefix = value.endsWith("*");
+            String term = normalize(prefix ? value.substring(0, value.length() - 1) : value);
+            if (term.isEmpty()) {
+                throw new IllegalArgumentException("Valeur de recherche vide pour le champ " + field);
+            }
+            return new Criterion(field, term, prefix);
+        }
+    }
+
+    // ===== INDEXATION =====
+
+    /**
+     * Remplace les termes de recherche d'un dossier par ceux de son JSON actuel.
+     */
+    public void index(Long caseId, String dataJson) {
+        if (caseId == null) {
+            return;
+        }
+        remove(caseId);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{caseId, MARKER_FIELD, ""});
+        for (Map.Entry<String, String> term : extractTerms(dataJson)) {
+            rows.add(new Object[]{caseId, term.getKey(), term.getValue()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO case_search_terms (case_id, field, term) VALUES (?, ?, ?)", rows);
+    }
+
+    public void remove(Long caseId) {
+        jdbcTemplate.update("DELETE FROM case_search_terms WHERE case_id = ?", caseId);
+    }
+
+    /**
+     * Aplatit le JSON en couples (chemin, valeur normalisée), sans doublons. JSON invalide: aucun terme.
+     */
+    static Set<Map.Entry<String, String>> extractTerms(String dataJson) {
+        Set<Map.Entry<String, String>> terms = new LinkedHashSet<>();
+        if (dataJson == null || dataJson.isBlank()) {
+            return terms;
+        }
+        try {
+            collect(MAPPER.readTree(dataJson), "", terms);
+        } catch (Exception e) {
+            System.err.println("Recherche dossiers: dataJson illisible, dossier indexé sans termes: " + e.getMessage());
+        }
+        return terms;
+    }
+
+    private static void collect(JsonNode node, String path, Set<Map.Entry<String, String>> terms) {
+        if (terms.size() >= MAX_TERMS_PER_CASE) {
+            return;
+        }
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> child = fields.next();
+                collect(child.getValue(), path.isEmpty() ? child.getKey() : path + "." + child.getKey(), terms);
+            }
+        } else if (node.isArray()) {
+            // Les indices sont omis: beneficiaires[0].nom et beneficiaires[1].nom donnent le champ beneficiaires.nom
+            for (JsonNode element : node) {
+                collect(element, path, terms);
+            }
+        } else if (node.isValueNode() && !node.isNull() && FIELD_PATTERN.matcher(path).matches()) {
+            String term = normalize(node.asText());
+            if (!term.isEmpty()) {
+                terms.add(Map.entry(path, term));
+            }
+        }
+    }
+
+    /**
+     * Forme normalisée d'une valeur: sans accents, en minuscules, espaces réduits, tronquée.
+     */
+    public static String normalize(String value) {
+        if (value == null) return "";
+        String stripped = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        String term = SPACES.matcher(stripped.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+        return term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term;
+    }
+
+    // ===== RECHERCHE =====
+
+    /**
+     * Dossiers satisfaisant tous les critères, du plus récent au plus ancien, paginés par clé (createdAt, id).
+     */
+    public KeysetPage<CaseSummary> search(List<Criterion> criteria, String cursor, int limit) {
+        if (criteria.isEmpty() || criteria.size() > MAX_CRITERIA) {
+            throw new IllegalArgumentException("Entre 1 et " + MAX_CRITERIA + " critères de recherche sont attendus");
+        }
+        int size = Math.max(1, Math.min(limit, CaseService.MAX_PAGE_SIZE));
+        KeysetPage.Cursor after = KeysetPage.decodeCursor(cursor);
+
+        // Le critère le plus sélectif pilote la recherche via l'index (field, term); les autres sont vérifiés
+        // dossier par dossier (EXISTS sur l'index (case_id, field, term)). Sélectivité estimée par un comptage
+        // borné: une valeur commune ("paul") ne doit pas parcourir tous les dossiers avant d'être croisée
+        // avec une valeur rare
+        List<Criterion> ordered = new ArrayList<>(criteria);
+        if (ordered.size() > 1) {
+            Map<Criterion, Integer> estimates = new HashMap<>();
+            for (Criterion criterion : ordered) {
+                estimates.put(criterion, estimateMatches(criterion));
+            }
+            ordered.sort(Comparator.comparing(estimates::get));
+        }
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder terms = new StringBuilder("SELECT t0.case_id FROM case_search_terms t0 WHERE ")
+            .append(termCondition("t0", ordered.get(0), args));
+        for (int i = 1; i < ordered.size(); i++) {
+            String alias = "t" + i;
+            terms.append(" AND EXISTS (SELECT 1 FROM case_search_terms ").append(alias)
+                 .append(" WHERE ").append(alias).append(".case_id = t0.case_id AND ")
+                 .append(termCondition(alias, ordered.get(i), args)).append(")");
+        }
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT c.id, c.reference, c.type, c.status, c.created_by, c.created_at FROM insurance_cases c WHERE c.id IN (")
+            .append(terms).append(")");
+        if (after != null) {
+            // Équivaut à (created_at, id) < curseur, écrit avec une borne simple sur created_at pour l'index
+            sql.append(" AND c.created_at <= ? AND (c.created_at < ? OR c.id < ?)");
+            Timestamp at = Timestamp.from(after.createdAt());
+            args.add(at);
+            args.add(at);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        args.add(size + 1);
+
+        List<CaseSummary> rows = jdbcTemplate.query(sql.toString(), SUMMARY_ROW, args.toArray());
+        return KeysetPage.of(rows, size, CaseSummary::getCreatedAt, CaseSummary::getId);
+    }
+
+    private int estimateMatches(Criterion criterion) {
+        List<Object> args = new ArrayList<>();
+        String condition = termCondition("t", criterion, args);
+        args.add(SELECTIVITY_PROBE_LIMIT);
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM (SELECT 1 FROM case_search_terms t WHERE " + condition + " LIMIT ?) probe",
+            Integer.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static String termCondition(String alias, Criterion criterion, List<Object> args) {
+        args.add(criterion.field());
+        args.add(criterion.prefix() ? escapeLike(criterion.value()) + "%" : criterion.value());
+        return alias + ".field = ? AND " + alias + ".term " + (criterion.prefix() ? "LIKE ? ESCAPE '!'" : "= ?");
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    // Colonnes c.id, c.reference, c.type, c.status, c.created_by, c.created_at (aussi pour CaseService.listSummaries)
+    static final RowMapper<CaseSummary> SUMMARY_ROW = (rs, rowNum) -> new SearchResult(
+        rs.getLong(1), rs.getString(2),
+        InsuranceCase.CaseType.valueOf(rs.getString(3)), InsuranceCase.CaseStatus.valueOf(rs.getString(4)),
+        rs.getString(5), rs.getTimestamp(6).toInstant());
+
+    private static final class SearchResult implements CaseSummary {
+        private final Long id;
+        private final String reference;
+        private final InsuranceCase.CaseType type;
+        private final InsuranceCase.CaseStatus status;
+        private final String createdBy;
+        private final Instant createdAt;
+
+        SearchResult(Long id, String reference, InsuranceCase.CaseType type, InsuranceCase.CaseStatus status,
+                     String createdBy, Instant createdAt) {
+            this.id = id;
+            this.reference = reference;
+            this.type = type;
+            this.status = status;
+            this.createdBy = createdBy;
+            this.createdAt = createdAt;
+        }
+
+        public Long getId() { return id; }
+        public String getReference() { return reference; }
+        public InsuranceCase.CaseType getType() { return type; }
+        public InsuranceCase.CaseStatus getStatus() { return status; }
+        public String getCreatedBy() { return createdBy; }
+        public Instant getCreatedAt() { return createdAt; }
+    }
+
+    // ===== RECONSTRUCTION =====
+
+    /**
+     * Au démarrage, indexe en tâche de fond les dossiers qui n'ont pas encore de termes (données existantes
+     * avant l'introduction de la recherche). Traitement par lots d'identifiants: une interruption reprend
+     * au démarrage suivant, les dossiers déjà indexés ayant leur ligne marqueur.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        Thread thread = new Thread(() -> {
+            ensureUniqueIndex();
+            backfill();
+        }, "case-search-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Index unique (case_id, field, term), remplaçant l'index simple sur les mêmes colonnes. Sur une table
+     * existante, les doublons laissés par d'anciennes indexations concurrentes sont supprimés d'abord, sous
+     * un verrou qui suspend les écritures de termes le temps de l'opération (une seule fois).
+     */
+    void ensureUniqueIndex() {
+        try {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, UNIQUE_INDEX);
+            if (Boolean.TRUE.equals(exists)) {
+                // Créé par Hibernate (table sans doublons): seul l'ancien index reste à supprimer
+                jdbcTemplate.execute("DROP INDEX IF EXISTS idx_case_search_terms_case_field");
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("LOCK TABLE case_search_terms IN SHARE ROW EXCLUSIVE MODE");
+                int duplicates = jdbcTemplate.update(
+                    "DELETE FROM case_search_terms t USING case_search_terms d " +
+                    "WHERE t.case_id = d.case_id AND t.field = d.field AND t.term = d.term AND t.id > d.id");
+                if (duplicates > 0) {
+                    System.out.println("Recherche dossiers: " + duplicates + " termes en double supprimés");
+                }
+                jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + UNIQUE_INDEX
+                    + " ON case_search_terms (case_id, field, term)");
+                jdbcTemplate.execute("DROP INDEX IF EXISTS idx_case_search_terms_case_field");
+            });
+        } catch (DataAccessException e) {
+            System.err.println("Recherche dossiers: index unique des termes non créé: " + e.getMessage());
+        }
+    }
+
+    void backfill() {
+        long lastId = 0;
+        long indexed = 0;
+        try {
+            while (true) {
+                long from = lastId;
+                // Un lot = une transaction. Les dossiers sont verrouillés (FOR UPDATE) puis leur marqueur est revérifié:
+                // un dossier indexé entre-temps par le listener est ignoré, et celui qui l'écrit maintenant attend
+                // la fin du lot avant de remplacer ses termes
+                BackfillBatch batch = transactionTemplate.execute(status -> indexBatch(from));
+                if (batch == null || batch.lastId() == null) {
+                    break;
+                }
+                lastId = batch.lastId();
+                indexed += batch.indexed();
+            }
+            if (indexed > 0) {
+                System.out.println("Recherche dossiers: " + indexed + " dossiers existants indexés");
+            }
+        } catch (Exception e) {
+            System.err.println("Recherche dossiers: indexation des dossiers existants interrompue: " + e.getMessage());
+        }
+    }
+
+    // Dernier identifiant parcouru (null: plus de dossier à indexer) et nombre de dossiers indexés
+    private record BackfillBatch(Long lastId, int indexed) {}
+
+    private BackfillBatch indexBatch(long afterId) {
+        List<Map<String, Object>> candidates = jdbcTemplate.queryForList(
+            "SELECT c.id, c.data_json FROM insurance_cases c WHERE c.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM case_search_terms t WHERE t.case_id = c.id AND t.field = ?) " +
+            "ORDER BY c.id LIMIT ? FOR UPDATE OF c",
+            afterId, MARKER_FIELD, BACKFILL_BATCH_SIZE);
+        if (candidates.isEmpty()) {
+            return new BackfillBatch(null, 0);
+        }
+        List<Long> ids = candidates.stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+        // Requête exécutée après l'obtention des verrous: voit les marqueurs validés pendant l'attente
+        Set<Long> indexed = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT case_id FROM case_search_terms WHERE field = ? AND case_id = ANY (?)",
+            Long.class, MARKER_FIELD, ids.toArray(new Long[0])));
+        List<Object[]> rows = new ArrayList<>();
+        int count = 0;
+        for (Map<String, Object> row : candidates) {
+            Long caseId = ((Number) row.get("id")).longValue();
+            if (indexed.contains(caseId)) {
+                continue;
+            }
+            rows.add(new Object[]{caseId, MARKER_FIELD, ""});
+            for (Map.Entry<String, String> term : extractTerms((String) row.get("data_json"))) {
+                rows.add(new Object[]{caseId, term.getKey(), term.getValue()});
+            }
+            count++;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO case_search_terms (case_id, field, term) VALUES (?, ?, ?)", rows);
+        return new BackfillBatch(ids.get(ids.size() - 1), count);
+    }
+}
@@ -1,28 +1,49 @@
 package com.assurance.service;
 
 import com.assurance.domain.AuditEvent;
+import com.assurance.domain.CaseSummary;
 import com.assurance.domain.InsuranceCase;
-import com.assurance.repo.AuditEventRepository;
 import com.assurance.repo.InsuranceCaseRepository;
+import com.assurance.web.dto.KeysetPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.Optional;
 import java.util.ArrayList;
 import java.util.HexFormat;
 import java.security.SecureRandom;
 
 @Service
 public class CaseService {
+    public static final int MAX_PAGE_SIZE = 200;
+    private static final int DRY_RUN_SAMPLE_SIZE = 20;
+
     private final InsuranceCaseRepository insuranceCaseRepository;
-    private final AuditEventRepository auditEventRepository;
+    private final AuditEventWriter auditEventWriter;
+    private final FileService fileService;
+    private final AdminEventService adminEventService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int cleanupBatchSize;
     private final SecureRandom secureRandom = new SecureRandom();
 
-    public CaseService(InsuranceCaseRepository insuranceCaseRepository, AuditEventRepository auditEventRepository) {
+    public CaseService(InsuranceCaseRepository insuranceCaseRepository, AuditEventWriter auditEventWriter,
+                       FileService fileService, AdminEventService adminEventService, JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${app.cases.cleanup.batch-size}") int cleanupBatchSize) {
         this.insuranceCaseRepository = insuranceCaseRepository;
-        this.auditEventRepository = auditEventRepository;
+        this.auditEventWriter = auditEventWriter;
+        this.fileService = fileService;
+        this.adminEventService = adminEventService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cleanupBatchSize = cleanupBatchSize;
     }
 
     public List<InsuranceCase> list() {
@@ -33,6 +54,64 @@ public class CaseService {
         return insuranceCaseRepository.findByCreatedBy(creatorName);
     }
 
+    /**
+     * Page de résumés (sans dataJson), paginée par clé (createdAt, id) décroissante.
+     * limit est ramené dans [1, MAX_PAGE_SIZE]; from inclus, to exclu.
+     *
+     * La requête ne contient que les filtres fournis, pour que chaque combinaison parcoure l'index adapté
+     * ((type|status|created_by, created_at) ou (created_at, id)) à partir du curseur.
+     */
+    public KeysetPage<CaseSummary> listSummaries(InsuranceCase.CaseType type, InsuranceCase.CaseStatus status, String createdBy,
+                                                 Instant from, Instant to, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetPage.Cursor after = KeysetPage.decodeCursor(cursor);
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT c.id, c.reference, c.type, c.status, c.created_by, c.created_at FROM insurance_cases c WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (type != null) {
+            sql.append(" AND c.type = ?");
+            args.add(type.name());
+        }
+        if (status != null) {
+            sql.append(" AND c.status = ?");
+            args.add(status.name());
+        }
+        String creator = createdBy == null || createdBy.isBlank() ? null : createdBy.trim();
+        if (creator != null) {
+            sql.append(" AND c.created_by = ?");
+            args.add(creator);
+        }
+        if (from != null) {
+            sql.append(" AND c.created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND c.created_at < ?");
+            args.add(Timestamp.from(to));
+        }
+        if (after != null) {
+            // Équivaut à (created_at, id) < curseur, écrit avec une borne simple sur created_at pour l'index
+            sql.append(" AND c.created_at <= ? AND (c.created_at < ? OR c.id < ?)");
+            Timestamp at = Timestamp.from(after.createdAt());
+            args.add(at);
+            args.add(at);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        args.add(size + 1);
+
+        List<CaseSummary> rows = jdbcTemplate.query(sql.toString(), CaseSearchService.SUMMARY_ROW, args.toArray());
+        return KeysetPage.of(rows, size, CaseSummary::getCreatedAt, CaseSummary::getId);
+    }
+
+    /**
+     * Contenu JSON d'un dossier; vide si le dossier n'existe pas ou n'a pas de données.
+     */
+    public Optional<String> findDataJson(Long caseId) {
+        return insuranceCaseRepository.findDataJsonById(caseId);
+    }
+
     public boolean canEdit(Long caseId, String actorName) {
         InsuranceCase insuranceCase = insuranceCaseRepository.findById(caseId).orElse(null);
         return insuranceCase != null && insuranceCase.getCreatedBy().equals(actorName);
@@ -55,11 +134,8 @@ public class CaseService {
 		item.setCreatedBy(actorName.trim());
 		InsuranceCase saved = insuranceCaseRepository.save(item);
 
-		AuditEvent evt = new AuditEvent();
-		evt.setType(AuditEvent.EventType.CASE_CREATED);
-		evt.setActor(actorName);
-		evt.setMessage("Création dossier (" + item.getType() + ")");
-		auditEventRepository.save(evt);
+		auditEventWriter.record(AuditEvent.EventType.CASE_CREATED, actorName, "Création dossier (" + item.getType() + ")");
+		adminEventService.caseCreated(saved.getId(), StatsRollupService.companyOf(saved.getCreatedBy()));
 		return saved;
 	}
 
@@ -72,35 +148,104 @@ public class CaseService {
         return base36.substring(0, 10);
     }
 
+    /**
+     * Supprime un dossier et ses pièces jointes, en libérant les contenus partagés qu'elles référencent.
+     */
     @Transactional
-    public int cleanupDuplicateCases() {
-        List<InsuranceCase> allCases = insuranceCaseRepository.findAll();
-        int deletedCount = 0;
-        
-        // Grouper les dossiers par contenu (dataJson) et garder seulement le plus récent
-        Map<String, List<InsuranceCase>> casesByContent = new HashMap<>();
-        
-        for (InsuranceCase insuranceCase : allCases) {
-            String content = insuranceCase.getDataJson() != null ? insuranceCase.getDataJson() : "";
-            casesByContent.computeIfAbsent(content, k -> new ArrayList<>()).add(insuranceCase);
+    public void delete(InsuranceCase insuranceCase) {
+        fileService.deleteAllCaseAttachments(insuranceCase.getId());
+        insuranceCaseRepository.delete(insuranceCase);
+    }
+
+    // ===== DOUBLONS =====
+
+    /**
+     * Bilan du nettoyage des doublons. En simulation (dryRun), rien n'est supprimé: duplicates est le
+     * nombre de dossiers qui le seraient et sampleIds en donne les premiers identifiants.
+     */
+    public record DuplicateCleanupReport(boolean dryRun, long duplicateGroups, long duplicates, long deleted,
+                                         List<Long> sampleIds) {}
+
+    // Dossier ayant un doublon plus récent (même contenu, créé après, ou en même temps avec un id supérieur):
+    // le plus récent de chaque groupe n'est jamais retenu
+    private static final String HAS_NEWER_DUPLICATE =
+        "EXISTS (SELECT 1 FROM insurance_cases n WHERE n.data_digest = c.data_digest " +
+        "AND COALESCE(n.data_json, '') = COALESCE(c.data_json, '') " +
+        "AND (n.created_at > c.created_at OR (n.created_at = c.created_at AND n.id > c.id)))";
+
+    /**
+     * Supprime les dossiers dont le contenu (dataJson) est identique à celui d'un dossier plus récent,
+     * en gardant le plus récent de chaque groupe.
+     *
+     * Les doublons sont trouvés en base par l'index sur l'empreinte SHA-256 du contenu (data_digest),
+     * par lots d'identifiants croissants: la mémoire utilisée ne dépend que de la taille d'un lot. Chaque lot
+     * est supprimé dans sa propre transaction (pièces jointes comprises); une interruption laisse les lots
+     * précédents supprimés et les suivants intacts. Les empreintes manquantes (dossiers antérieurs à la
+     * colonne) sont calculées au préalable, également par lots.
+     */
+    public DuplicateCleanupReport cleanupDuplicateCases(boolean dryRun) {
+        long digested = fillMissingDigests();
+        if (digested > 0) {
+            System.out.println("Doublons dossiers: empreinte calculée pour " + digested + " dossiers");
+        }
+
+        Long duplicateGroups = jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT c.data_digest) FROM insurance_cases c WHERE " + HAS_NEWER_DUPLICATE, Long.class);
+        if (dryRun) {
+            Long duplicates = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM insurance_cases c WHERE " + HAS_NEWER_DUPLICATE, Long.class);
+            List<Long> sample = jdbcTemplate.queryForList(
+                "SELECT c.id FROM insurance_cases c WHERE " + HAS_NEWER_DUPLICATE + " ORDER BY c.id LIMIT ?",
+                Long.class, DRY_RUN_SAMPLE_SIZE);
+            return new DuplicateCleanupReport(true, duplicateGroups, duplicates, 0, sample);
         }
-        
-        // Pour chaque groupe de dossiers avec le même contenu, garder seulement le plus récent
-        for (List<InsuranceCase> duplicates : casesByContent.values()) {
-            if (duplicates.size() > 1) {
-                // Trier par date de création (le plus récent en premier)
-                duplicates.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
-                
-                // Supprimer tous sauf le premier (le plus récent)
-                for (int i = 1; i < duplicates.size(); i++) {
-                    insuranceCaseRepository.delete(duplicates.get(i));
-                    deletedCount++;
-                }
+
+        long deleted = 0;
+        long lastId = 0;
+        List<Long> sample = new ArrayList<>();
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT c.id FROM insurance_cases c WHERE c.id > ? AND " + HAS_NEWER_DUPLICATE + " ORDER BY c.id LIMIT ?",
+                Long.class, lastId, cleanupBatchSize);
+            if (ids.isEmpty()) {
+                break;
             }
+            transactionTemplate.executeWithoutResult(status -> deleteBatch(ids));
+            deleted += ids.size();
+            lastId = ids.get(ids.size() - 1);
+            for (int i = 0; i < ids.size() && sample.size() < DRY_RUN_SAMPLE_SIZE; i++) {
+                sample.add(ids.get(i));
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("Doublons dossiers: " + deleted + " dossiers supprimés (" + duplicateGroups + " groupes)");
         }
-        
-        return deletedCount;
+        return new DuplicateCleanupReport(false, duplicateGroups, deleted, deleted, sample);
     }
-}
 
+    // Suppression par l'EntityManager: les listeners (statistiques, recherche) sont notifiés
+    private void deleteBatch(List<Long> ids) {
+        for (Long id : ids) {
+            fileService.deleteAllCaseAttachments(id);
+        }
+        insuranceCaseRepository.deleteAll(insuranceCaseRepository.findAllById(ids));
+    }
 
+    // Parcours par plages d'identifiants: chaque lot reste borné quel que soit le nombre d'empreintes manquantes
+    private long fillMissingDigests() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM insurance_cases WHERE data_digest IS NULL", Long.class);
+        long filled = 0;
+        for (long fromId = 0; maxId != null && fromId < maxId; fromId += cleanupBatchSize) {
+            List<Object[]> updates = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, data_json FROM insurance_cases WHERE id > ? AND id <= ? AND data_digest IS NULL",
+                rs -> { updates.add(new Object[]{InsuranceCase.digestOf(rs.getString(2)), rs.getLong(1)}); },
+                fromId, fromId + cleanupBatchSize);
+            if (!updates.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("UPDATE insurance_cases SET data_digest = ? WHERE id = ?", updates));
+                filled += updates.size();
+            }
+        }
+        return filled;
+    }
+}
@@ -3,26 +3,46 @@ package com.assurance.service;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 
 @Service
 public class CryptoService {
+    private static final int GCM_TAG_LENGTH = 16;
+    private static final int GCM_STANDARD_IV_LENGTH = 12;
+
+    // Valeur de encryption_format des fichiers écrits au format segmenté (null: format historique en un seul bloc).
+    public static final int SEGMENTED_FORMAT = SegmentedGcm.VERSION;
+
     private final SecureRandom secureRandom = new SecureRandom();
 
     // NOTE: In production, store and rotate keys using a KMS. Load from env if provided.
-    private final byte[] keyBytes;
+    // La clé est construite une seule fois (SecretKeySpec est immuable et partageable entre threads)
+    private final SecretKey key;
+
+    // Cipher n'est pas thread-safe: une instance par thread pour encrypt/decrypt, réinitialisée à chaque appel.
+    // Les flux (encrypt*Stream / decrypt*Stream) gardent leur propre instance pendant toute la lecture: un même
+    // thread peut en manipuler plusieurs à la fois (ex. rechiffrement), et le coût est amorti sur tout le fichier.
+    private final ThreadLocal<Cipher> gcmCipher = ThreadLocal.withInitial(CryptoService::newGcmCipher);
 
     public CryptoService() {
         String envKey = System.getenv("APP_FILE_KEY");
+        byte[] keyBytes;
         if (envKey != null && !envKey.isBlank()) {
-            this.keyBytes = envKey.getBytes();
+            keyBytes = envKey.getBytes();
         } else {
             // 32 bytes (256-bit) static demo key (fallback dev only)
-            this.keyBytes = "0123456789ABCDEF0123456789ABCDEF".getBytes();
+            keyBytes = "0123456789ABCDEF0123456789ABCDEF".getBytes();
         }
+        this.key = new SecretKeySpec(keyBytes, "AES");
     }
 
     public byte[] randomIv() {
@@ -33,8 +53,7 @@ public class CryptoService {
 
     public byte[] encrypt(byte[] iv, byte[] plain) {
         try {
-            SecretKey key = new SecretKeySpec(keyBytes, "AES");
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            Cipher cipher = gcmCipher.get();
             cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
             return cipher.doFinal(plain);
         } catch (Exception e) {
@@ -44,14 +63,189 @@ public class CryptoService {
 
     public byte[] decrypt(byte[] iv, byte[] cipherText) {
         try {
-            SecretKey key = new SecretKeySpec(keyBytes, "AES");
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            Cipher cipher = gcmCipher.get();
             cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
             return cipher.doFinal(cipherText);
         } catch (Exception e) {
             throw new RuntimeException("Decryption failed", e);
         }
     }
-}
 
+    /**
+     * Sel de la sous-clé et préfixe de nonce, aléatoires, d'un fichier au format segmenté (voir SegmentedGcm).
+     */
+    public byte[] randomSegmentedNonce() {
+        byte[] nonce = new byte[SegmentedGcm.FILE_NONCE_LENGTH];
+        secureRandom.nextBytes(nonce);
+        return nonce;
+    }
+
+    /**
+     * Chiffre un flux au format AES-GCM segmenté (segments de 64 Kio authentifiés séparément),
+     * avec la sous-clé dérivée du sel de fileNonce.
+     */
+    public InputStream encryptSegmentedStream(byte[] fileNonce, InputStream plain) {
+        return new SegmentedGcm.EncryptingInputStream(plain, key, newGcmCipher(), fileNonce, SegmentedGcm.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Taille du texte chiffré produit par encryptSegmentedStream pour un clair de la taille donnée.
+     */
+    public long segmentedEncryptedLength(long plainLength) {
+        return SegmentedGcm.encryptedLength(plainLength, SegmentedGcm.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Déchiffre un flux au format segmenté. Le flux retourné sait sauter directement au segment
+     * contenant une position (skip), ce qui rend les lectures par plage proportionnelles à la plage.
+     */
+    public InputStream decryptSegmentedStream(InputStream cipherText) {
+        return new SegmentedGcm.DecryptingInputStream(cipherText, key, newGcmCipher());
+    }
+
+    /**
+     * Déchiffre un flux AES-GCM au fil de l'eau, avec un tampon de taille fixe (format historique,
+     * un seul bloc GCM pour tout le fichier).
+     *
+     * Le Cipher GCM du JDK conserve tout le texte chiffré jusqu'à doFinal() en mode déchiffrement.
+     * Pour un nonce standard de 96 bits, on déchiffre donc en AES/CTR (le keystream de GCM) et on
+     * vérifie le tag en rechiffrant le clair obtenu en GCM : le tag est contrôlé à la fin du flux
+     * et une altération provoque une IOException sur la dernière lecture.
+     *
+     * Limite: le clair est rendu avant la vérification du tag. Un lecteur qui saute une partie du
+     * flux ou s'arrête avant la fin (requête Range) reçoit des octets jamais authentifiés; ce format
+     * n'est donc servi qu'en entier (voir FileService.contentResource).
+     */
+    public InputStream decryptStream(byte[] iv, InputStream cipherText) {
+        try {
+            if (iv == null || iv.length != GCM_STANDARD_IV_LENGTH) {
+                // Nonce non standard: J0 dérivé par GHASH, on garde le déchiffrement bufferisé du JDK
+                Cipher cipher = newGcmCipher();
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+                return new CipherInputStream(cipherText, cipher);
+            }
+
+            // Compteur initial de GCM: inc32(IV || 0x00000001)
+            byte[] counter = new byte[16];
+            System.arraycopy(iv, 0, counter, 0, GCM_STANDARD_IV_LENGTH);
+            counter[15] = 2;
+            Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+            ctr.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(counter));
+
+            Cipher verifier = newGcmCipher();
+            verifier.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+
+            return new GcmDecryptingInputStream(cipherText, ctr, verifier);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Decryption failed", e);
+        }
+    }
+
+    private static Cipher newGcmCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM indisponible", e);
+        }
+    }
+
+    /**
+     * Flux de déchiffrement GCM qui retient en permanence les 16 derniers octets lus (le tag).
+     */
+    private static final class GcmDecryptingInputStream extends InputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final InputStream source;
+        private final Cipher ctr;
+        private final Cipher verifier;
+        private final byte[] work = new byte[BUFFER_SIZE + GCM_TAG_LENGTH];
+        private final byte[] plain = new byte[BUFFER_SIZE + GCM_TAG_LENGTH];
+        private final byte[] scratch = new byte[BUFFER_SIZE + 2 * GCM_TAG_LENGTH];
+        private final byte[] tail = new byte[GCM_TAG_LENGTH];
+        private int tailLength;
+        private int plainPos;
+        private int plainLen;
+        private boolean finished;
+
+        GcmDecryptingInputStream(InputStream source, Cipher ctr, Cipher verifier) {
+            this.source = source;
+            this.ctr = ctr;
+            this.verifier = verifier;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
 
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (plainPos == plainLen) {
+                if (finished) return -1;
+                fill();
+            }
+            int n = Math.min(len, plainLen - plainPos);
+            System.arraycopy(plain, plainPos, b, off, n);
+            plainPos += n;
+            return n;
+        }
+
+        private void fill() throws IOException {
+            System.arraycopy(tail, 0, work, 0, tailLength);
+            int n = source.read(work, tailLength, BUFFER_SIZE);
+            if (n == -1) {
+                finish();
+                return;
+            }
+            int total = tailLength + n;
+            if (total <= GCM_TAG_LENGTH) {
+                System.arraycopy(work, 0, tail, 0, total);
+                tailLength = total;
+                plainPos = plainLen = 0;
+                return;
+            }
+            int processLen = total - GCM_TAG_LENGTH;
+            try {
+                plainLen = ctr.update(work, 0, processLen, plain, 0);
+                verifier.update(plain, 0, plainLen, scratch, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Déchiffrement du fichier impossible", e);
+            }
+            plainPos = 0;
+            System.arraycopy(work, processLen, tail, 0, GCM_TAG_LENGTH);
+            tailLength = GCM_TAG_LENGTH;
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            plainPos = plainLen = 0;
+            if (tailLength < GCM_TAG_LENGTH) {
+                throw new IOException("Fichier chiffré tronqué");
+            }
+            try {
+                byte[] remaining = ctr.doFinal();
+                if (remaining.length > 0) {
+                    System.arraycopy(remaining, 0, plain, 0, remaining.length);
+                    plainLen = remaining.length;
+                    verifier.update(remaining);
+                }
+                byte[] sealed = verifier.doFinal();
+                byte[] expectedTag = new byte[GCM_TAG_LENGTH];
+                System.arraycopy(sealed, sealed.length - GCM_TAG_LENGTH, expectedTag, 0, GCM_TAG_LENGTH);
+                if (!MessageDigest.isEqual(expectedTag, tail)) {
+                    throw new IOException("Échec de l'authentification du fichier chiffré");
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Déchiffrement du fichier impossible", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
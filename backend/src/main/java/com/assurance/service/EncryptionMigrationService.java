@@ -0,0 +1,141 @@
+package com.assurance.service;
+
+import com.assurance.service.storage.BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Réécrit en tâche de fond les fichiers chiffrés au format historique (un seul bloc AES-GCM)
+ * vers le format segmenté, qui autorise les lectures par plage sans tout déchiffrer.
+ *
+ * Chaque ligne est traitée en flux: lecture et vérification de l'ancien contenu, chiffrement
+ * segmenté avec un nouveau nonce, puis UPDATE conditionnel (encryption_format IS NULL). Si le tag
+ * de l'ancien contenu est invalide, l'écriture échoue et la ligne reste inchangée.
+ * Le hash du clair est renseigné au passage pour les fichiers qui n'en avaient pas (ETag fort).
+ * Activé par app.crypto.migration.enabled=true (APP_CRYPTO_MIGRATE) avec APP_FILE_ENCRYPT=true.
+ */
+@Service
+@ConditionalOnProperty(name = "app.crypto.migration.enabled", havingValue = "true")
+public class EncryptionMigrationService {
+    private static final List<String> TABLES = List.of("report_files", "case_attachments");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CryptoService cryptoService;
+    private final FileService fileService;
+    private final Optional<BlobStore> blobStore;
+    private final int batchSize;
+
+    private final Map<String, Long> lastIdByTable = new ConcurrentHashMap<>();
+
+    public EncryptionMigrationService(JdbcTemplate jdbcTemplate, CryptoService cryptoService, FileService fileService,
+                                      Optional<BlobStore> blobStore,
+                                      @Value("${app.crypto.migration.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cryptoService = cryptoService;
+        this.fileService = fileService;
+        this.blobStore = blobStore;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.crypto.migration.delay-ms}", fixedDelayString = "${app.crypto.migration.delay-ms}")
+    public void migrateNextBatch() {
+        if (!FileService.ENABLE_ENCRYPTION) {
+            // Sans chiffrement, les contenus sont en clair: rien à réécrire
+            return;
+        }
+        for (String table : TABLES) {
+            migrateBatch(table);
+        }
+    }
+
+    int migrateBatch(String table) {
+        long lastId = lastIdByTable.getOrDefault(table, 0L);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT id, iv, storage_key, file_size FROM " + table +
+            " WHERE encryption_format IS NULL AND (cipher_text IS NOT NULL OR storage_key IS NOT NULL) AND id > ? ORDER BY id LIMIT ?",
+            lastId, batchSize);
+
+        if (rows.isEmpty()) {
+            lastIdByTable.put(table, 0L);
+            return 0;
+        }
+
+        int migrated = 0;
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("id")).longValue();
+            try {
+                migrated += migrateRow(table, id, (byte[]) row.get("iv"), (String) row.get("storage_key"), (Number) row.get("file_size"));
+            } catch (Exception e) {
+                System.err.println("Rechiffrement de " + table + "#" + id + " impossible: " + e.getMessage());
+            }
+            lastIdByTable.put(table, id);
+        }
+
+        System.out.println("Migration chiffrement segmenté: " + migrated + "/" + rows.size() + " fichiers réécrits dans " + table);
+        return migrated;
+    }
+
+    private int migrateRow(String table, Long id, byte[] iv, String storageKey, Number plainSize) throws IOException {
+        byte[] fileNonce = cryptoService.randomSegmentedNonce();
+        MessageDigest plainDigest = sha256();
+
+        if (storageKey != null) {
+            BlobStore store = blobStore.orElseThrow(() -> new IOException("Contenu dans le BlobStore mais aucun stockage configuré"));
+            String newKey;
+            try (InputStream plain = new DigestInputStream(cryptoService.decryptStream(iv, store.open(storageKey)), plainDigest)) {
+                newKey = store.put(cryptoService.encryptSegmentedStream(fileNonce, plain));
+            }
+            int updated = jdbcTemplate.update(
+                "UPDATE " + table + " SET storage_key = ?, iv = ?, encryption_format = ?, content_hash = COALESCE(content_hash, ?) " +
+                "WHERE id = ? AND encryption_format IS NULL AND storage_key = ?",
+                newKey, fileNonce, CryptoService.SEGMENTED_FORMAT, HexFormat.of().formatHex(plainDigest.digest()), id, storageKey);
+            // L'ancien blob n'est supprimé que s'il n'est plus référencé (le nouveau l'est dans tous les cas)
+            fileService.deleteBlobIfUnreferenced(updated == 1 ? storageKey : newKey);
+            return updated;
+        }
+
+        if (plainSize == null) {
+            throw new IOException("Taille du fichier inconnue");
+        }
+        long length = cryptoService.segmentedEncryptedLength(plainSize.longValue());
+        // Les tranches de l'ancien contenu sont lues sur d'autres connexions que celle de l'UPDATE (MVCC)
+        try (InputStream plain = new DigestInputStream(cryptoService.decryptStream(iv,
+                new ByteaChunkInputStream(jdbcTemplate, table, id, ByteaChunkInputStream.DEFAULT_CHUNK_SIZE)), plainDigest)) {
+            int updated = jdbcTemplate.update(
+                "UPDATE " + table + " SET cipher_text = ?, iv = ?, encryption_format = ? WHERE id = ? AND encryption_format IS NULL AND storage_key IS NULL",
+                ps -> {
+                    ps.setBinaryStream(1, cryptoService.encryptSegmentedStream(fileNonce, plain), length);
+                    ps.setBytes(2, fileNonce);
+                    ps.setInt(3, CryptoService.SEGMENTED_FORMAT);
+                    ps.setLong(4, id);
+                });
+            if (updated == 1) {
+                jdbcTemplate.update("UPDATE " + table + " SET content_hash = COALESCE(content_hash, ?) WHERE id = ?",
+                    HexFormat.of().formatHex(plainDigest.digest()), id);
+            }
+            return updated;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
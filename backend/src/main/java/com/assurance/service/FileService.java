@@ -2,13 +2,39 @@ package com.assurance.service;
 
 import com.assurance.domain.*;
 import com.assurance.repo.*;
+import com.assurance.service.storage.BlobStore;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class FileService {
@@ -16,11 +42,19 @@ public class FileService {
     private final ReportFileRepository reportFileRepository;
     private final InsuranceCaseRepository insuranceCaseRepository;
     private final CaseAttachmentRepository caseAttachmentRepository;
+    private final FileContentRepository fileContentRepository;
     private final CryptoService cryptoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Optional<BlobStore> blobStore;
+    private final GlobalSearchService globalSearchService;
+    private final TransactionTemplate blobCleanupTransaction;
+
+    // Espace de noms des verrous consultatifs posés sur les clés de blob (pg_advisory_xact_lock(int, int))
+    private static final int BLOB_KEY_LOCK_SPACE = 0x426C6F62;
 
     // Configuration
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
-    private static final boolean ENABLE_ENCRYPTION = Boolean.parseBoolean(
+    static final boolean ENABLE_ENCRYPTION = Boolean.parseBoolean(
         System.getenv().getOrDefault("APP_FILE_ENCRYPT", "false")
     );
 
@@ -28,24 +62,35 @@ public class FileService {
                       ReportFileRepository reportFileRepository,
                       InsuranceCaseRepository insuranceCaseRepository,
                       CaseAttachmentRepository caseAttachmentRepository,
-                      CryptoService cryptoService) {
+                      FileContentRepository fileContentRepository,
+                      CryptoService cryptoService,
+                      JdbcTemplate jdbcTemplate,
+                      Optional<BlobStore> blobStore,
+                      GlobalSearchService globalSearchService,
+                      PlatformTransactionManager transactionManager) {
         this.reportRepository = reportRepository;
         this.reportFileRepository = reportFileRepository;
         this.insuranceCaseRepository = insuranceCaseRepository;
         this.caseAttachmentRepository = caseAttachmentRepository;
+        this.fileContentRepository = fileContentRepository;
         this.cryptoService = cryptoService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.globalSearchService = globalSearchService;
+        // La suppression d'un blob a lieu après le commit de la transaction appelante: elle a la sienne
+        this.blobCleanupTransaction = new TransactionTemplate(transactionManager);
+        this.blobCleanupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     // ===== GESTION DES FICHIERS DE RAPPORTS =====
 
-    @Transactional
+    @Transactional(rollbackFor = IOException.class)
     public ReportFile uploadReportFile(Long reportId, MultipartFile file, String description, String fileType) throws IOException {
         Report report = reportRepository.findById(reportId)
             .orElseThrow(() -> new IllegalArgumentException("Rapport introuvable avec l'ID: " + reportId));
         
         validateFile(file);
         
-        byte[] fileBytes = file.getBytes();
         ReportFile reportFile = new ReportFile(report, file.getOriginalFilename(), file.getContentType(), file.getSize());
         reportFile.setDescription(description);
         reportFile.setFileType(determineFileType(file.getOriginalFilename(), file.getContentType()));
@@ -58,92 +103,206 @@ public class FileService {
                                (description != null && description.toLowerCase().contains("prévisualisation"));
         reportFile.setIsPublic(isPreviewFile);
         
-        if (ENABLE_ENCRYPTION) {
-            byte[] iv = cryptoService.randomIv();
-            byte[] cipher = cryptoService.encrypt(iv, fileBytes);
-            reportFile.setIv(iv);
-            reportFile.setCipherText(cipher);
-        } else {
-            reportFile.setIv(new byte[16]);
-            reportFile.setCipherText(fileBytes);
-        }
-        
+        StoredContent content = storeContent(file);
+        reportFile.setContentId(content.id());
+        reportFile.setContentHash(content.hash());
         return reportFileRepository.save(reportFile);
     }
 
-    @Transactional
+    @Transactional(rollbackFor = IOException.class)
     public CaseAttachment uploadCaseAttachment(Long caseId, MultipartFile file, String description, String category) throws IOException {
         InsuranceCase insuranceCase = insuranceCaseRepository.findById(caseId)
             .orElseThrow(() -> new IllegalArgumentException("Dossier introuvable avec l'ID: " + caseId));
         
         validateFile(file);
         
-        byte[] fileBytes = file.getBytes();
         CaseAttachment attachment = new CaseAttachment(insuranceCase, file.getOriginalFilename(), file.getContentType(), file.getSize());
         attachment.setDescription(description);
         attachment.setCategory(category);
         attachment.setFileType(determineFileType(file.getOriginalFilename(), file.getContentType()));
         
-        if (ENABLE_ENCRYPTION) {
-            byte[] iv = cryptoService.randomIv();
-            byte[] cipher = cryptoService.encrypt(iv, fileBytes);
-            attachment.setIv(iv);
-            attachment.setCipherText(cipher);
-        } else {
-            attachment.setIv(new byte[16]);
-            attachment.setCipherText(fileBytes);
-        }
-        
+        StoredContent content = storeContent(file);
+        attachment.setContentId(content.id());
+        attachment.setContentHash(content.hash());
         return caseAttachmentRepository.save(attachment);
     }
 
     // ===== TÉLÉCHARGEMENT DES FICHIERS =====
 
-    public byte[] downloadReportFile(Long fileId) throws IOException {
-        ReportFile reportFile = reportFileRepository.findById(fileId)
-            .orElseThrow(() -> new IllegalArgumentException("Fichier introuvable avec l'ID: " + fileId));
-        
-        if (ENABLE_ENCRYPTION) {
-            return cryptoService.decrypt(reportFile.getIv(), reportFile.getCipherText());
-        } else {
-            return reportFile.getCipherText();
+    /**
+     * Ouvre le contenu (déchiffré si nécessaire) d'un fichier de rapport sous forme de flux.
+     * Le BYTEA est lu par tranches et déchiffré au fil de l'eau: le coût mémoire d'un
+     * téléchargement est un tampon fixe, quelle que soit la taille du fichier.
+     */
+    public InputStream openReportFileStream(Long fileId) throws IOException {
+        return openContentStream("report_files", fileId, "Fichier introuvable avec l'ID: " + fileId);
+    }
+
+    public InputStream openCaseAttachmentStream(Long attachmentId) throws IOException {
+        return openContentStream("case_attachments", attachmentId, "Pièce jointe introuvable avec l'ID: " + attachmentId);
+    }
+
+    public Resource reportFileResource(FileSummary reportFile) {
+        Long fileId = reportFile.getId();
+        return contentResource("report_files", reportFile, () -> openReportFileStream(fileId));
+    }
+
+    public Resource caseAttachmentResource(FileSummary attachment) {
+        Long attachmentId = attachment.getId();
+        return contentResource("case_attachments", attachment, () -> openCaseAttachmentStream(attachmentId));
+    }
+
+    /**
+     * Corps de réponse d'un fichier. Spring MVC sert les requêtes Range (206) pour toute Resource
+     * sauf InputStreamResource: c'est cette dernière qui est retournée pour le format chiffré
+     * historique, dont le tag GCM n'est vérifié qu'en fin de flux. Ces fichiers partent toujours
+     * en entier (200, sans Accept-Ranges ni Content-Length).
+     */
+    private Resource contentResource(String table, FileSummary file, StreamedFileResource.ContentOpener opener) {
+        if (ENABLE_ENCRYPTION && isSingleBlockGcm(table, file.getId())) {
+            return new InputStreamResource(opener::open, "Fichier stocké [" + file.getFileName() + "]");
         }
+        return new StreamedFileResource(file.getFileName(), file.getSizeBytes(), opener);
     }
 
-    public byte[] downloadCaseAttachment(Long attachmentId) throws IOException {
-        CaseAttachment attachment = caseAttachmentRepository.findById(attachmentId)
-            .orElseThrow(() -> new IllegalArgumentException("Pièce jointe introuvable avec l'ID: " + attachmentId));
-        
-        if (ENABLE_ENCRYPTION) {
-            return cryptoService.decrypt(attachment.getIv(), attachment.getCipherText());
+    private boolean isSingleBlockGcm(String table, Long id) {
+        // Contenu dédupliqué: c'est le format de l'entrée partagée qui compte
+        List<Boolean> legacy = jdbcTemplate.queryForList(
+            "SELECT CASE WHEN t.content_id IS NOT NULL THEN c.encryption_format IS NULL"
+                + " ELSE t.encryption_format IS NULL END"
+                + " FROM " + table + " t LEFT JOIN file_contents c ON c.id = t.content_id WHERE t.id = ?",
+            Boolean.class, id);
+        // Fichier introuvable: l'ouverture du flux signalera l'erreur
+        return !legacy.isEmpty() && Boolean.TRUE.equals(legacy.get(0));
+    }
+
+    /**
+     * Écrit une archive ZIP des fichiers d'un rapport dans le flux de sortie (la réponse HTTP).
+     * Les fichiers sont lus et déchiffrés un par un, au fil de l'écriture: la mémoire utilisée
+     * ne dépend ni du nombre de fichiers ni de la taille de l'archive.
+     */
+    public void writeReportArchive(List<? extends FileSummary> files, OutputStream out) throws IOException {
+        writeArchive(files, this::openReportFileStream, out);
+    }
+
+    public void writeCaseArchive(List<? extends FileSummary> attachments, OutputStream out) throws IOException {
+        writeArchive(attachments, this::openCaseAttachmentStream, out);
+    }
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open(Long id) throws IOException;
+    }
+
+    private void writeArchive(List<? extends FileSummary> files, StreamOpener streams,
+                              OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // Les pièces jointes sont surtout des formats déjà compressés (pdf, jpg, docx): compression rapide
+        zip.setLevel(Deflater.BEST_SPEED);
+        Set<String> entryNames = new HashSet<>();
+        for (FileSummary file : files) {
+            ZipEntry entry = new ZipEntry(uniqueEntryName(file, entryNames));
+            if (file.getCreatedAt() != null) {
+                entry.setTime(file.getCreatedAt().toEpochMilli());
+            }
+            zip.putNextEntry(entry);
+            try (InputStream content = streams.open(file.getId())) {
+                content.transferTo(zip);
+            }
+            zip.closeEntry();
+        }
+        // finish() et non close(): le flux de la réponse reste géré par le conteneur
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Nom d'entrée sans séparateur de chemin, rendu unique dans l'archive ("devis.pdf", "devis (2).pdf", ...).
+     */
+    private static String uniqueEntryName(FileSummary file, Set<String> entryNames) {
+        String name = file.getFileName() != null && !file.getFileName().isBlank()
+            ? file.getFileName().replaceAll("[/\\\\]", "_") : "fichier-" + file.getId();
+        String candidate = name;
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 2; !entryNames.add(candidate); i++) {
+            candidate = base + " (" + i + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private InputStream openContentStream(String table, Long id, String notFoundMessage) throws IOException {
+        Map<String, Object> row;
+        try {
+            row = jdbcTemplate.queryForMap("SELECT iv, storage_key, encryption_format, content_id FROM " + table + " WHERE id = ?", id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new IllegalArgumentException(notFoundMessage);
+        }
+        Number contentId = (Number) row.get("content_id");
+        if (contentId != null) {
+            // Contenu dédupliqué: lu depuis l'entrée partagée, avec son propre IV et son format
+            return openStoredContent("file_contents", contentId.longValue(), jdbcTemplate.queryForMap(
+                "SELECT iv, storage_key, encryption_format FROM file_contents WHERE id = ?", contentId.longValue()));
+        }
+        return openStoredContent(table, id, row);
+    }
+
+    private InputStream openStoredContent(String table, Long id, Map<String, Object> row) throws IOException {
+        byte[] iv = (byte[]) row.get("iv");
+        String storageKey = (String) row.get("storage_key");
+
+        InputStream content;
+        if (storageKey != null) {
+            content = requireBlobStore().open(storageKey);
         } else {
-            return attachment.getCipherText();
+            // Contenu historique encore stocké en BYTEA
+            content = new ByteaChunkInputStream(jdbcTemplate, table, id, ByteaChunkInputStream.DEFAULT_CHUNK_SIZE);
+        }
+        if (!ENABLE_ENCRYPTION) {
+            return content;
+        }
+        Number format = (Number) row.get("encryption_format");
+        if (format != null) {
+            // Format segmenté (version lue dans l'en-tête)
+            return cryptoService.decryptSegmentedStream(content);
         }
+        // Format historique: un seul bloc GCM, tag vérifié en fin de flux (servi en entier, voir contentResource)
+        return cryptoService.decryptStream(iv, content);
     }
 
     // ===== RECHERCHE ET LISTAGE =====
+    // Les listes retournent des projections: seules les métadonnées sont lues, jamais le contenu
 
-    public List<ReportFile> getReportFiles(Long reportId) {
+    public List<ReportFileSummary> getReportFiles(Long reportId) {
         return reportFileRepository.findByReportIdOrderByCreatedAtDesc(reportId);
     }
 
-    public List<CaseAttachment> getCaseAttachments(Long caseId) {
+    public List<CaseAttachmentSummary> getCaseAttachments(Long caseId) {
         return caseAttachmentRepository.findByInsuranceCaseIdOrderByCreatedAtDesc(caseId);
     }
 
-    public List<ReportFile> searchReportFiles(Long reportId, String fileName) {
+    public Optional<ReportFileSummary> findReportFile(Long reportId, Long fileId) {
+        return reportFileRepository.findByIdAndReportId(fileId, reportId);
+    }
+
+    public Optional<CaseAttachmentSummary> findCaseAttachment(Long caseId, Long attachmentId) {
+        return caseAttachmentRepository.findByIdAndInsuranceCaseId(attachmentId, caseId);
+    }
+
+    public List<ReportFileSummary> searchReportFiles(Long reportId, String fileName) {
         return reportFileRepository.findByReportIdAndFileNameContainingIgnoreCase(reportId, fileName);
     }
 
-    public List<CaseAttachment> searchCaseAttachments(Long caseId, String fileName) {
+    public List<CaseAttachmentSummary> searchCaseAttachments(Long caseId, String fileName) {
         return caseAttachmentRepository.findByCaseIdAndFileNameContainingIgnoreCase(caseId, fileName);
     }
 
-    public List<ReportFile> getReportFilesByType(Long reportId, String fileType) {
+    public List<ReportFileSummary> getReportFilesByType(Long reportId, String fileType) {
         return reportFileRepository.findByReportIdAndFileTypeOrderByCreatedAtDesc(reportId, fileType);
     }
 
-    public List<CaseAttachment> getCaseAttachmentsByCategory(Long caseId, String category) {
+    public List<CaseAttachmentSummary> getCaseAttachmentsByCategory(Long caseId, String category) {
         return caseAttachmentRepository.findByInsuranceCaseIdAndCategoryOrderByCreatedAtDesc(caseId, category);
     }
 
@@ -151,16 +310,271 @@ public class FileService {
 
     @Transactional
     public void deleteReportFile(Long fileId) {
-        ReportFile reportFile = reportFileRepository.findById(fileId)
-            .orElseThrow(() -> new IllegalArgumentException("Fichier introuvable avec l'ID: " + fileId));
-        reportFileRepository.delete(reportFile);
+        FileStorageRef storage = reportFileRepository.findStorageRefById(fileId).orElse(null);
+        if (storage == null || reportFileRepository.deleteFileById(fileId) == 0) {
+            throw new IllegalArgumentException("Fichier introuvable avec l'ID: " + fileId);
+        }
+        globalSearchService.remove(SearchDocument.DocType.REPORT_FILE, fileId);
+        releaseStorage(storage);
     }
 
     @Transactional
     public void deleteCaseAttachment(Long attachmentId) {
-        CaseAttachment attachment = caseAttachmentRepository.findById(attachmentId)
-            .orElseThrow(() -> new IllegalArgumentException("Pièce jointe introuvable avec l'ID: " + attachmentId));
-        caseAttachmentRepository.delete(attachment);
+        FileStorageRef storage = caseAttachmentRepository.findStorageRefById(attachmentId).orElse(null);
+        if (storage == null || caseAttachmentRepository.deleteAttachmentById(attachmentId) == 0) {
+            throw new IllegalArgumentException("Pièce jointe introuvable avec l'ID: " + attachmentId);
+        }
+        globalSearchService.remove(SearchDocument.DocType.CASE_ATTACHMENT, attachmentId);
+        releaseStorage(storage);
+    }
+
+    /**
+     * Supprime toutes les pièces jointes d'un dossier en libérant leurs contenus.
+     * À appeler avant la suppression du dossier: la cascade JPA ne décrémenterait pas les compteurs de références.
+     */
+    @Transactional
+    public void deleteAllCaseAttachments(Long caseId) {
+        List<FileStorageRef> storages = caseAttachmentRepository.findStorageRefsByCaseId(caseId);
+        caseAttachmentRepository.deleteByCaseId(caseId);
+        globalSearchService.removeChildren(SearchDocument.DocType.CASE_ATTACHMENT, caseId);
+        storages.forEach(this::releaseStorage);
+    }
+
+    // ===== STOCKAGE DU CONTENU =====
+
+    /**
+     * Contenu d'un fichier uploadé, lu en une seule passe avec des tampons de taille fixe:
+     * part multipart -> contrôle de taille -> SHA-256 du clair -> chiffrement AES-GCM segmenté (si activé).
+     * Ni le clair ni le chiffré ne sont jamais matérialisés en entier en mémoire.
+     */
+    private static final class UploadContent implements AutoCloseable {
+        private final InputStream source;
+        private final InputStream stream;
+        private final MessageDigest plainDigest;
+        private final long length;
+
+        private UploadContent(InputStream source, InputStream stream, MessageDigest plainDigest, long length) {
+            this.source = source;
+            this.stream = stream;
+            this.plainDigest = plainDigest;
+            this.length = length;
+        }
+
+        InputStream stream() { return stream; }
+
+        /** Taille du contenu stocké (chiffré le cas échéant) annoncée par la part multipart. */
+        long length() { return length; }
+
+        /** Empreinte du clair, disponible une fois le flux entièrement consommé. */
+        String plainHash() { return HexFormat.of().formatHex(plainDigest.digest()); }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    /**
+     * Contenu partagé (ligne file_contents) référencé par un fichier uploadé.
+     */
+    private record StoredContent(Long id, String hash) {}
+
+    /**
+     * Enregistre le contenu d'un upload une seule fois par empreinte (SHA-256 du clair).
+     * Une première passe calcule l'empreinte; si ce contenu est déjà connu, son compteur de références
+     * est incrémenté et rien n'est chiffré ni écrit. Sinon une seconde passe chiffre (format segmenté,
+     * nonce propre au contenu) et écrit le contenu dans le BlobStore ou dans file_contents.cipher_text.
+     * La part multipart est relisible (mémoire ou fichier temporaire): la seconde passe ne sollicite pas le client.
+     */
+    private StoredContent storeContent(MultipartFile file) throws IOException {
+        try {
+            String hash = hashUpload(file);
+            Long existing = acquireContent(hash);
+            if (existing != null) {
+                return new StoredContent(existing, hash);
+            }
+
+            byte[] fileNonce = ENABLE_ENCRYPTION ? cryptoService.randomSegmentedNonce() : null;
+            Integer format = ENABLE_ENCRYPTION ? CryptoService.SEGMENTED_FORMAT : null;
+            try (UploadContent content = openUploadContent(file, fileNonce)) {
+                String storageKey = null;
+                int inserted;
+                if (blobStore.isPresent()) {
+                    if (!ENABLE_ENCRYPTION) {
+                        // Sans chiffrement la clé du blob est l'empreinte du clair: verrou partagé posé avant l'écriture
+                        // et gardé jusqu'au commit, une suppression concurrente de ce blob attend ce nouvel enregistrement.
+                        // Chiffré, le contenu a un nonce propre et donc une clé qu'aucune autre ligne ne partage.
+                        lockBlobKey(jdbcTemplate, hash, true);
+                    }
+                    storageKey = blobStore.get().put(content.stream());
+                    inserted = insertContent(hash, storageKey, null, fileNonce, format, file.getSize(), content.length());
+                } else {
+                    // Mode "db": la colonne BYTEA est alimentée en flux par l'INSERT
+                    inserted = insertContent(hash, null, content, fileNonce, format, file.getSize(), content.length());
+                    ensureFullyRead(content);
+                }
+                if (!hash.equals(content.plainHash())) {
+                    throw new IOException("Le contenu du fichier a changé entre le calcul de l'empreinte et l'enregistrement");
+                }
+                if (inserted == 0) {
+                    // Même contenu enregistré au même moment par un autre upload: on référence son entrée
+                    releaseBlobAfterCommit(storageKey);
+                    Long concurrent = acquireContent(hash);
+                    if (concurrent == null) {
+                        throw new IOException("Contenu " + hash + " introuvable après un enregistrement concurrent");
+                    }
+                    return new StoredContent(concurrent, hash);
+                }
+                return new StoredContent(contentIdByHash(hash), hash);
+            }
+        } catch (SizeLimitedInputStream.LimitExceededException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    private String hashUpload(MultipartFile file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(new SizeLimitedInputStream(file.getInputStream(), MAX_FILE_SIZE), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Ajoute une référence au contenu s'il existe déjà. L'UPDATE verrouille la ligne: une suppression
+     * concurrente du dernier fichier qui la référence attend la fin de cette transaction, ou l'inverse.
+     */
+    private Long acquireContent(String hash) {
+        if (jdbcTemplate.update("UPDATE file_contents SET ref_count = ref_count + 1 WHERE content_hash = ?", hash) == 0) {
+            return null;
+        }
+        return contentIdByHash(hash);
+    }
+
+    private Long contentIdByHash(String hash) {
+        return jdbcTemplate.queryForObject("SELECT id FROM file_contents WHERE content_hash = ?", Long.class, hash);
+    }
+
+    private int insertContent(String hash, String storageKey, UploadContent inlineContent, byte[] iv, Integer format,
+                              long sizeBytes, long storedBytes) {
+        return jdbcTemplate.update(
+            "INSERT INTO file_contents (content_hash, storage_key, cipher_text, iv, encryption_format, size_bytes, stored_bytes, ref_count, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?) ON CONFLICT DO NOTHING", ps -> {
+                ps.setString(1, hash);
+                ps.setString(2, storageKey);
+                if (inlineContent != null) {
+                    ps.setBinaryStream(3, inlineContent.stream(), inlineContent.length());
+                } else {
+                    ps.setNull(3, Types.BINARY);
+                }
+                ps.setBytes(4, iv);
+                ps.setObject(5, format, Types.INTEGER);
+                ps.setLong(6, sizeBytes);
+                ps.setLong(7, storedBytes);
+                ps.setTimestamp(8, Timestamp.from(Instant.now()));
+            });
+    }
+
+    private UploadContent openUploadContent(MultipartFile file, byte[] fileNonce) throws IOException {
+        InputStream source = file.getInputStream();
+        MessageDigest plainDigest = sha256();
+        InputStream plain = new DigestInputStream(new SizeLimitedInputStream(source, MAX_FILE_SIZE), plainDigest);
+        if (ENABLE_ENCRYPTION) {
+            return new UploadContent(source, cryptoService.encryptSegmentedStream(fileNonce, plain), plainDigest,
+                cryptoService.segmentedEncryptedLength(file.getSize()));
+        }
+        return new UploadContent(source, plain, plainDigest, file.getSize());
+    }
+
+    private static void ensureFullyRead(UploadContent content) throws IOException {
+        // La taille annoncée a été lue: le flux doit être terminé, sinon le fichier dépasse sa taille déclarée
+        if (content.stream().read() != -1) {
+            throw new IOException("Le contenu reçu ne correspond pas à la taille annoncée du fichier");
+        }
+    }
+
+    /**
+     * Libère le contenu d'un fichier supprimé: blob propre à la ligne (stockage historique)
+     * ou référence sur le contenu partagé.
+     */
+    private void releaseStorage(FileStorageRef storage) {
+        releaseBlobAfterCommit(storage.getStorageKey());
+        releaseContent(storage.getContentId());
+    }
+
+    /**
+     * Décrémente le compteur de références et supprime le contenu partagé (ligne et blob) à la dernière référence.
+     */
+    private void releaseContent(Long contentId) {
+        if (contentId == null) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE file_contents SET ref_count = ref_count - 1 WHERE id = ?", contentId);
+        List<String> unreferenced = jdbcTemplate.query(
+            "SELECT storage_key FROM file_contents WHERE id = ? AND ref_count <= 0", (rs, i) -> rs.getString(1), contentId);
+        if (!unreferenced.isEmpty()
+                && jdbcTemplate.update("DELETE FROM file_contents WHERE id = ? AND ref_count <= 0", contentId) > 0) {
+            releaseBlobAfterCommit(unreferenced.get(0));
+        }
+    }
+
+    /** Bilan de la déduplication: contenus distincts, références et octets économisés. */
+    public DeduplicationStats getDeduplicationStats() {
+        return fileContentRepository.getDeduplicationStats();
+    }
+
+    private BlobStore requireBlobStore() throws IOException {
+        return blobStore.orElseThrow(() -> new IOException(
+            "Le contenu de ce fichier est dans le BlobStore mais aucun stockage n'est configuré (app.blob.store)"));
+    }
+
+    /**
+     * Supprime le blob une fois la transaction validée, si plus aucune ligne ne le référence
+     * (les clés étant adressées par contenu, deux fichiers identiques partagent le même blob).
+     */
+    private void releaseBlobAfterCommit(String storageKey) {
+        if (storageKey == null || blobStore.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteBlobIfUnreferenced(storageKey);
+            }
+        });
+    }
+
+    /**
+     * Supprime le blob si aucune ligne validée ne le référence. Le comptage et la suppression ont lieu sous le verrou
+     * exclusif de la clé: un upload du même contenu en cours (verrou partagé jusqu'à son commit) est attendu et compté.
+     */
+    void deleteBlobIfUnreferenced(String storageKey) {
+        if (storageKey == null || blobStore.isEmpty()) {
+            return;
+        }
+        blobCleanupTransaction.executeWithoutResult(status -> {
+            lockBlobKey(jdbcTemplate, storageKey, false);
+            Long references = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM report_files WHERE storage_key = ?) + (SELECT COUNT(*) FROM case_attachments WHERE storage_key = ?)" +
+                " + (SELECT COUNT(*) FROM file_contents WHERE storage_key = ?)",
+                Long.class, storageKey, storageKey, storageKey);
+            if (references != null && references == 0) {
+                try {
+                    blobStore.get().delete(storageKey);
+                } catch (IOException e) {
+                    System.err.println("Suppression du blob " + storageKey + " impossible: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Verrou consultatif sur une clé de blob, libéré à la fin de la transaction courante: partagé pour les écritures
+     * (plusieurs uploads du même contenu en parallèle), exclusif pour la décision de suppression.
+     */
+    static void lockBlobKey(JdbcTemplate jdbcTemplate, String storageKey, boolean shared) {
+        jdbcTemplate.query(shared ? "SELECT pg_advisory_xact_lock_shared(?, ?)" : "SELECT pg_advisory_xact_lock(?, ?)",
+            (RowCallbackHandler) rs -> {}, BLOB_KEY_LOCK_SPACE, storageKey.hashCode());
     }
 
     // ===== MÉTHODES UTILITAIRES =====
@@ -181,6 +595,14 @@ public class FileService {
         }
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
     private String determineFileType(String fileName, String contentType) {
         if (fileName == null) return "unknown";
         
@@ -235,13 +657,13 @@ public class FileService {
         return caseAttachmentRepository.countByInsuranceCaseId(caseId);
     }
 
-    public List<ReportFile> getRecentReportFiles(Long reportId) {
-        java.time.LocalDateTime thirtyDaysAgo = java.time.LocalDateTime.now().minusDays(30);
+    public List<ReportFileSummary> getRecentReportFiles(Long reportId) {
+        java.time.Instant thirtyDaysAgo = java.time.Instant.now().minus(java.time.Duration.ofDays(30));
         return reportFileRepository.findRecentFilesByReportId(reportId, thirtyDaysAgo);
     }
 
-    public List<CaseAttachment> getRecentCaseAttachments(Long caseId) {
-        java.time.LocalDateTime thirtyDaysAgo = java.time.LocalDateTime.now().minusDays(30);
+    public List<CaseAttachmentSummary> getRecentCaseAttachments(Long caseId) {
+        java.time.Instant thirtyDaysAgo = java.time.Instant.now().minus(java.time.Duration.ofDays(30));
         return caseAttachmentRepository.findRecentAttachmentsByCaseId(caseId, thirtyDaysAgo);
     }
 }
@@ -0,0 +1,54 @@
+package com.assurance.service;
+
+import com.assurance.domain.CaseAttachment;
+import com.assurance.domain.InsuranceCase;
+import com.assurance.domain.Report;
+import com.assurance.domain.ReportFile;
+import com.assurance.domain.SearchDocument.DocType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA (Report, InsuranceCase, ReportFile, CaseAttachment) qui tient à jour la recherche globale
+ * dans la transaction qui écrit la donnée. Les suppressions en masse de fichiers (requêtes JPQL, sans
+ * listener) sont répercutées par FileService.
+ */
+@Component
+public class GlobalSearchListener {
+    private final GlobalSearchService globalSearchService;
+
+    public GlobalSearchListener(GlobalSearchService globalSearchService) {
+        this.globalSearchService = globalSearchService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Object entity) {
+        if (entity instanceof Report report) {
+            globalSearchService.indexReport(report);
+        } else if (entity instanceof InsuranceCase insuranceCase) {
+            globalSearchService.indexCase(insuranceCase);
+        } else if (entity instanceof ReportFile file) {
+            globalSearchService.indexReportFile(file);
+        } else if (entity instanceof CaseAttachment attachment) {
+            globalSearchService.indexCaseAttachment(attachment);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Report report) {
+            globalSearchService.remove(DocType.REPORT, report.getId());
+            globalSearchService.removeChildren(DocType.REPORT_FILE, report.getId());
+        } else if (entity instanceof InsuranceCase insuranceCase) {
+            globalSearchService.remove(DocType.CASE, insuranceCase.getId());
+            globalSearchService.removeChildren(DocType.CASE_ATTACHMENT, insuranceCase.getId());
+        } else if (entity instanceof ReportFile file) {
+            globalSearchService.remove(DocType.REPORT_FILE, file.getId());
+        } else if (entity instanceof CaseAttachment attachment) {
+            globalSearchService.remove(DocType.CASE_ATTACHMENT, attachment.getId());
+        }
+    }
+}
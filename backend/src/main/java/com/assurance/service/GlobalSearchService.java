@@ -0,0 +1,484 @@
+package com.assurance.service;
+
+import com.assurance.domain.CaseAttachment;
+import com.assurance.domain.InsuranceCase;
+import com.assurance.domain.Report;
+import com.assurance.domain.ReportFile;
+import com.assurance.domain.SearchDocument.DocType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Recherche globale sur les rapports (titre, référence de dossier, bénéficiaires, assurés, intervenants),
+ * les dossiers (référence, noms présents dans le JSON) et les fichiers (nom, description).
+ *
+ * Chaque donnée source a un document (search_documents) tenu à jour par GlobalSearchListener et par FileService
+ * pour les suppressions en masse. Ses mots (sans accents, en minuscules) sont dans search_vector, tsvector pondéré
+ * (A: titre ou référence, B: nom de personne, C: texte libre) indexé en GIN, et dans search_text pour la
+ * recherche approchée (index trigrammes pg_trgm).
+ *
+ * Une recherche exige tous les mots de la requête (préfixe à partir de 3 caractères) et classe les documents
+ * par ts_rank. Si aucun document ne correspond, elle se rabat sur les documents contenant un mot proche de
+ * chaque mot de la requête (faute de frappe), classés par similarité.
+ */
+@Service
+public class GlobalSearchService {
+    public static final int MAX_WORDS = 5;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_RESULT_WINDOW = 1000;
+
+    static final int WEIGHT_TITLE = 4;   // Titre de rapport, référence, nom de fichier
+    static final int WEIGHT_NAME = 2;    // Bénéficiaire, assuré, nom de personne
+    static final int WEIGHT_TEXT = 1;    // Intervenants, description
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int MAX_TOKENS_PER_DOCUMENT = 300;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // Au-delà, le classement ne porte que sur les documents les plus récents: un mot très courant ("rapport")
+    // ne calcule pas ts_rank sur toute la table
+    static final int MAX_RANKED_MATCHES = 2000;
+    // Documents les plus récents sondés avant la recherche par l'index GIN: s'ils contiennent déjà
+    // MAX_RANKED_MATCHES correspondances, ce sont exactement les plus récentes
+    static final int RECENT_WINDOW = 10000;
+    private static final String DOCUMENT_COLUMNS =
+        "d.id, d.doc_type, d.doc_id, d.parent_id, d.title, d.subtitle, d.created_at, d.search_vector";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO search_documents (doc_type, doc_id, parent_id, title, subtitle, created_at, search_text, search_vector) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, setweight(to_tsvector('simple', ?), 'A') || setweight(to_tsvector('simple', ?), 'B') " +
+        "|| setweight(to_tsvector('simple', ?), 'C')) ";
+    // Écriture d'une donnée source (listener): le document reflète toujours la dernière version
+    private static final String UPSERT_SQL = INSERT_SQL +
+        "ON CONFLICT (doc_type, doc_id) DO UPDATE SET parent_id = EXCLUDED.parent_id, title = EXCLUDED.title, " +
+        "subtitle = EXCLUDED.subtitle, created_at = EXCLUDED.created_at, search_text = EXCLUDED.search_text, " +
+        "search_vector = EXCLUDED.search_vector";
+    // Indexation de démarrage: n'ajoute que les documents absents
+    private static final String INSERT_MISSING_SQL = INSERT_SQL + "ON CONFLICT (doc_type, doc_id) DO NOTHING";
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern WORD = Pattern.compile("[a-z0-9]+");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    // Extension pg_trgm présente (index trigrammes créé): recherche approchée disponible
+    private volatile boolean fuzzyAvailable;
+
+    public GlobalSearchService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Résultat de recherche: type et identifiant de la donnée, rapport ou dossier parent pour un fichier.
+     */
+    public record Hit(DocType type, Long id, Long parentId, String title, String subtitle, Instant createdAt, double score) {}
+
+    /**
+     * approximate: aucun document ne contient tous les mots, les résultats sont ceux de la recherche approchée.
+     */
+    public record SearchResults(List<Hit> items, int page, int size, boolean hasMore, boolean approximate) {}
+
+    // Donnée source à indexer, construite depuis une entité ou une ligne SQL
+    private record Source(DocType type, Long docId, Long parentId, String title, String subtitle, Instant createdAt,
+                          Map<String, Integer> tokens) {}
+
+    // ===== INDEXATION =====
+
+    public void indexReport(Report report) {
+        write(reportSource(report.getId(), report.getTitle(), report.getCaseId(), report.getBeneficiaries(),
+            report.getInsureds(), report.getInitiator(), report.getSubscriber(), report.getCreatedAt()));
+    }
+
+    public void indexCase(InsuranceCase insuranceCase) {
+        write(caseSource(insuranceCase.getId(), insuranceCase.getReference(),
+            insuranceCase.getType() != null ? insuranceCase.getType().name() : null,
+            insuranceCase.getDataJson(), insuranceCase.getCreatedAt()));
+    }
+
+    public void indexReportFile(ReportFile file) {
+        write(fileSource(DocType.REPORT_FILE, file.getId(), file.getReport() != null ? file.getReport().getId() : null,
+            file.getFileName(), file.getDescription(), file.getCreatedAt()));
+    }
+
+    public void indexCaseAttachment(CaseAttachment attachment) {
+        write(fileSource(DocType.CASE_ATTACHMENT, attachment.getId(),
+            attachment.getInsuranceCase() != null ? attachment.getInsuranceCase().getId() : null,
+            attachment.getFileName(), attachment.getDescription(), attachment.getCreatedAt()));
+    }
+
+    public void remove(DocType type, Long docId) {
+        jdbcTemplate.update("DELETE FROM search_documents WHERE doc_type = ? AND doc_id = ?", type.name(), docId);
+    }
+
+    /**
+     * Retire les fichiers d'un rapport ou d'un dossier (suppressions en masse, sans listener JPA).
+     */
+    public void removeChildren(DocType type, Long parentId) {
+        jdbcTemplate.update("DELETE FROM search_documents WHERE doc_type = ? AND parent_id = ?", type.name(), parentId);
+    }
+
+    private static Source reportSource(Long id, String title, String caseId, String beneficiaries, String insureds,
+                                       String initiator, String subscriber, Instant createdAt) {
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+        addTokens(tokens, title, WEIGHT_TITLE);
+        addTokens(tokens, caseId, WEIGHT_TITLE);
+        for (String name : personNames(beneficiaries)) addTokens(tokens, name, WEIGHT_NAME);
+        for (String name : personNames(insureds)) addTokens(tokens, name, WEIGHT_NAME);
+        addTokens(tokens, initiator, WEIGHT_TEXT);
+        addTokens(tokens, subscriber, WEIGHT_TEXT);
+        return new Source(DocType.REPORT, id, null, title, caseId, createdAt, tokens);
+    }
+
+    private static Source caseSource(Long id, String reference, String type, String dataJson, Instant createdAt) {
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+        addTokens(tokens, reference, WEIGHT_TITLE);
+        for (String name : personNames(dataJson)) addTokens(tokens, name, WEIGHT_NAME);
+        return new Source(DocType.CASE, id, null, reference, type, createdAt, tokens);
+    }
+
+    private static Source fileSource(DocType type, Long id, Long parentId, String fileName, String description, Instant createdAt) {
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+        addTokens(tokens, fileName, WEIGHT_TITLE);
+        addTokens(tokens, description, WEIGHT_TEXT);
+        return new Source(type, id, parentId, fileName, description, createdAt, tokens);
+    }
+
+    private void write(Source source) {
+        if (source.docId() == null) {
+            return;
+        }
+        jdbcTemplate.update(UPSERT_SQL, upsertArgs(source));
+    }
+
+    // Paramètres de INSERT_SQL: colonnes affichées, puis mots de toutes provenances et mots par poids
+    private static Object[] upsertArgs(Source source) {
+        Timestamp createdAt = Timestamp.from(source.createdAt() != null ? source.createdAt() : Instant.now());
+        StringJoiner all = new StringJoiner(" ");
+        Map<Integer, StringJoiner> byWeight = new HashMap<>();
+        for (int weight : new int[]{WEIGHT_TITLE, WEIGHT_NAME, WEIGHT_TEXT}) {
+            byWeight.put(weight, new StringJoiner(" "));
+        }
+        for (Map.Entry<String, Integer> token : source.tokens().entrySet()) {
+            all.add(token.getKey());
+            byWeight.get(token.getValue()).add(token.getKey());
+        }
+        return new Object[]{source.type().name(), source.docId(), source.parentId(), truncate(source.title()),
+            truncate(source.subtitle()), createdAt, all.toString(), byWeight.get(WEIGHT_TITLE).toString(),
+            byWeight.get(WEIGHT_NAME).toString(), byWeight.get(WEIGHT_TEXT).toString()};
+    }
+
+    // ===== ANALYSE DU TEXTE =====
+
+    /**
+     * Mots d'un texte: sans accents, en minuscules, découpés sur tout caractère non alphanumérique.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : SEPARATORS.split(CaseSearchService.normalize(text))) {
+            if (word.length() >= MIN_TOKEN_LENGTH) {
+                words.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+            }
+        }
+        return words;
+    }
+
+    private static void addTokens(Map<String, Integer> tokens, String text, int weight) {
+        for (String word : tokenize(text)) {
+            if (tokens.size() >= MAX_TOKENS_PER_DOCUMENT && !tokens.containsKey(word)) {
+                return;
+            }
+            tokens.merge(word, weight, Math::max);
+        }
+    }
+
+    /**
+     * Noms de personnes d'un JSON (bénéficiaires, assurés, dataJson d'un dossier): valeurs des clés
+     * nom/prenom, y compris préfixées ("souscripteur_nom") et dans des tableaux.
+     */
+    static Set<String> personNames(String json) {
+        Set<String> names = new LinkedHashSet<>();
+        if (json == null || json.isBlank()) {
+            return names;
+        }
+        try {
+            collectNames(MAPPER.readTree(json), null, names);
+        } catch (Exception e) {
+            // JSON illisible: aucun nom indexé
+        }
+        return names;
+    }
+
+    private static void collectNames(JsonNode node, String key, Set<String> names) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> child = fields.next();
+                collectNames(child.getValue(), child.getKey(), names);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                collectNames(element, key, names);
+            }
+        } else if (node.isTextual() && key != null && isNameKey(key)) {
+            names.add(node.asText());
+        }
+    }
+
+    private static boolean isNameKey(String key) {
+        String lower = key.toLowerCase(Locale.ROOT);
+        return lower.equals("nom") || lower.equals("prenom") || lower.endsWith("_nom") || lower.endsWith("_prenom")
+            || lower.equals("name") || lower.equals("firstname") || lower.equals("lastname");
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > MAX_TEXT_LENGTH ? value.substring(0, MAX_TEXT_LENGTH) : value;
+    }
+
+    // ===== RECHERCHE =====
+
+    /**
+     * Documents contenant tous les mots de la requête, du meilleur score au plus faible puis du plus récent
+     * au plus ancien; à défaut, documents contenant un mot proche de chacun d'eux. Pagination par numéro de page,
+     * limitée aux MAX_RESULT_WINDOW premiers résultats.
+     */
+    public SearchResults search(String query, Set<DocType> types, int page, int size) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("La recherche doit contenir au moins un mot de " + MIN_TOKEN_LENGTH + " caractères");
+        }
+        if (words.size() > MAX_WORDS) {
+            throw new IllegalArgumentException("La recherche est limitée à " + MAX_WORDS + " mots");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        if ((long) pageNumber * pageSize >= MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Seuls les " + MAX_RESULT_WINDOW + " premiers résultats sont consultables: affiner la recherche");
+        }
+
+        String tsQuery = tsQuery(words);
+        List<Hit> hits = fullTextPage(tsQuery, types, pageSize, pageNumber);
+        boolean approximate = false;
+        if (hits.isEmpty() && fuzzyAvailable && (pageNumber == 0 || !anyFullTextMatch(tsQuery, types))) {
+            hits = fuzzyPage(words, types, pageSize, pageNumber);
+            approximate = true;
+        }
+        boolean hasMore = hits.size() > pageSize;
+        return new SearchResults(hasMore ? hits.subList(0, pageSize) : hits, pageNumber, pageSize, hasMore, approximate);
+    }
+
+    /**
+     * Requête tsquery: tous les mots, en préfixe (:*) à partir de MIN_PREFIX_LENGTH caractères.
+     * Les mots issus de tokenize ne contiennent que [a-z0-9]: aucun opérateur tsquery ne peut s'y glisser.
+     */
+    static String tsQuery(List<String> words) {
+        StringJoiner query = new StringJoiner(" & ");
+        for (String word : words) {
+            if (!WORD.matcher(word).matches()) {
+                throw new IllegalArgumentException("Mot de recherche invalide: " + word);
+            }
+            query.add(word.length() >= MIN_PREFIX_LENGTH ? word + ":*" : word);
+        }
+        return query.toString();
+    }
+
+    private List<Hit> fullTextPage(String tsQuery, Set<DocType> types, int pageSize, int pageNumber) {
+        // Correspondances les plus récentes (au plus MAX_RANKED_MATCHES), seules classées par ts_rank. Mot courant:
+        // lues dans les RECENT_WINDOW derniers documents (index (created_at, id)); sinon trouvées par l'index GIN
+        String source = countRecentMatches(tsQuery, types) >= MAX_RANKED_MATCHES
+            ? "(SELECT " + DOCUMENT_COLUMNS + " FROM search_documents d ORDER BY d.created_at DESC, d.id DESC LIMIT " + RECENT_WINDOW + ") d"
+            : "search_documents d";
+        List<Object> args = new ArrayList<>();
+        args.add(tsQuery);
+        args.add(tsQuery);
+        StringBuilder matches = new StringBuilder("SELECT " + DOCUMENT_COLUMNS + " FROM ").append(source)
+            .append(" WHERE d.search_vector @@ to_tsquery('simple', ?)");
+        appendTypes(matches, types, args);
+        matches.append(" ORDER BY d.created_at DESC, d.id DESC LIMIT ?");
+        args.add(MAX_RANKED_MATCHES);
+
+        // Colonnes portées par la sous-requête: pas de seconde lecture de search_documents pour le classement
+        String sql = "SELECT d.doc_type, d.doc_id, d.parent_id, d.title, d.subtitle, d.created_at, " +
+            "ts_rank(d.search_vector, to_tsquery('simple', ?)) AS score FROM (" + matches + ") d " +
+            "ORDER BY score DESC, d.created_at DESC, d.id DESC LIMIT ? OFFSET ?";
+        args.add(pageSize + 1);
+        args.add(pageNumber * pageSize);
+        return jdbcTemplate.query(sql, this::hit, args.toArray());
+    }
+
+    private int countRecentMatches(String tsQuery, Set<DocType> types) {
+        List<Object> args = new ArrayList<>();
+        args.add(tsQuery);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM (SELECT d.doc_type, d.search_vector FROM search_documents d " +
+            "ORDER BY d.created_at DESC, d.id DESC LIMIT " + RECENT_WINDOW + ") d WHERE d.search_vector @@ to_tsquery('simple', ?)");
+        appendTypes(sql, types, args);
+        Integer count = jdbcTemplate.queryForObject(sql.toString(), Integer.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private boolean anyFullTextMatch(String tsQuery, Set<DocType> types) {
+        List<Object> args = new ArrayList<>();
+        args.add(tsQuery);
+        StringBuilder sql = new StringBuilder(
+            "SELECT EXISTS (SELECT 1 FROM search_documents d WHERE d.search_vector @@ to_tsquery('simple', ?)");
+        appendTypes(sql, types, args);
+        sql.append(")");
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql.toString(), Boolean.class, args.toArray()));
+    }
+
+    private List<Hit> fuzzyPage(List<String> words, Set<DocType> types, int pageSize, int pageNumber) {
+        // Chaque mot doit avoir un mot proche dans search_text (opérateur <% de pg_trgm, index trigrammes);
+        // score: somme des similarités
+        List<Object> args = new ArrayList<>();
+        StringBuilder score = new StringBuilder();
+        StringBuilder where = new StringBuilder();
+        for (String word : words) {
+            score.append(score.length() == 0 ? "" : " + ").append("word_similarity(?, d.search_text)");
+            args.add(word);
+        }
+        for (String word : words) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append("? <% d.search_text");
+            args.add(word);
+        }
+        StringBuilder sql = new StringBuilder("SELECT d.doc_type, d.doc_id, d.parent_id, d.title, d.subtitle, d.created_at, ")
+            .append(score).append(" AS score FROM search_documents d").append(where);
+        appendTypes(sql, types, args);
+        sql.append(" ORDER BY score DESC, d.created_at DESC, d.id DESC LIMIT ? OFFSET ?");
+        args.add(pageSize + 1);
+        args.add(pageNumber * pageSize);
+        return jdbcTemplate.query(sql.toString(), this::hit, args.toArray());
+    }
+
+    private static void appendTypes(StringBuilder sql, Set<DocType> types, List<Object> args) {
+        if (types != null && !types.isEmpty()) {
+            sql.append(" AND d.doc_type IN (").append(String.join(", ", types.stream().map(type -> "?").toList())).append(")");
+            types.forEach(type -> args.add(type.name()));
+        }
+    }
+
+    private Hit hit(ResultSet rs, int rowNum) throws SQLException {
+        return new Hit(DocType.valueOf(rs.getString(1)), rs.getLong(2), rs.getObject(3, Long.class),
+            rs.getString(4), rs.getString(5), rs.getTimestamp(6).toInstant(), rs.getDouble(7));
+    }
+
+    // ===== RECONSTRUCTION =====
+
+    /**
+     * Au démarrage, en tâche de fond: index GIN et trigrammes (voir recherche_globale.sql), puis indexation
+     * des données qui n'ont pas encore de document (données existantes avant la recherche globale, ou indexées
+     * avant search_vector), par lots d'identifiants croissants. Une interruption reprend au démarrage suivant.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        Thread thread = new Thread(() -> {
+            ensureIndexes();
+            backfill();
+        }, "global-search-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void ensureIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_search_documents_vector ON search_documents USING GIN (search_vector)");
+            // Documents écrits avant search_vector: supprimés, puis réindexés par backfill
+            int stale = jdbcTemplate.update("DELETE FROM search_documents WHERE search_vector IS NULL");
+            if (stale > 0) {
+                System.out.println("Recherche globale: " + stale + " documents sans search_vector à réindexer");
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Recherche globale: index GIN de search_vector non créé: " + e.getMessage());
+        }
+        try {
+            // Nécessite le droit CREATE sur la base si l'extension n'est pas déjà installée
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_search_documents_text_trgm ON search_documents USING GIN (search_text gin_trgm_ops)");
+            fuzzyAvailable = true;
+        } catch (DataAccessException e) {
+            System.err.println("Recherche globale: pg_trgm indisponible, recherche approchée désactivée: " + e.getMessage());
+        }
+    }
+
+    void backfill() {
+        try {
+            long reports = backfill(DocType.REPORT,
+                "SELECT r.id, r.title, r.case_id, r.beneficiaries, r.insureds, r.initiator, r.subscriber, r.created_at FROM reports r",
+                "r", row -> reportSource(id(row), (String) row.get("title"), (String) row.get("case_id"),
+                    (String) row.get("beneficiaries"), (String) row.get("insureds"), (String) row.get("initiator"),
+                    (String) row.get("subscriber"), instant(row.get("created_at"))));
+            long cases = backfill(DocType.CASE,
+                "SELECT c.id, c.reference, c.type, c.data_json, c.created_at FROM insurance_cases c",
+                "c", row -> caseSource(id(row), (String) row.get("reference"), (String) row.get("type"),
+                    (String) row.get("data_json"), instant(row.get("created_at"))));
+            long reportFiles = backfill(DocType.REPORT_FILE,
+                "SELECT f.id, f.report_id, f.file_name, f.description, f.created_at FROM report_files f",
+                "f", row -> fileSource(DocType.REPORT_FILE, id(row), ((Number) row.get("report_id")).longValue(),
+                    (String) row.get("file_name"), (String) row.get("description"), instant(row.get("created_at"))));
+            long attachments = backfill(DocType.CASE_ATTACHMENT,
+                "SELECT a.id, a.case_id, a.file_name, a.description, a.created_at FROM case_attachments a",
+                "a", row -> fileSource(DocType.CASE_ATTACHMENT, id(row), ((Number) row.get("case_id")).longValue(),
+                    (String) row.get("file_name"), (String) row.get("description"), instant(row.get("created_at"))));
+            if (reports + cases + reportFiles + attachments > 0) {
+                System.out.println("Recherche globale: " + reports + " rapports, " + cases + " dossiers, "
+                    + (reportFiles + attachments) + " fichiers existants indexés");
+            }
+        } catch (Exception e) {
+            System.err.println("Recherche globale: indexation des données existantes interrompue: " + e.getMessage());
+        }
+    }
+
+    private long backfill(DocType type, String select, String alias, Function<Map<String, Object>, Source> toSource) {
+        long lastId = 0;
+        long indexed = 0;
+        while (true) {
+            List<Map<String, Object>> batch = jdbcTemplate.queryForList(select + " WHERE " + alias + ".id > ? " +
+                "AND NOT EXISTS (SELECT 1 FROM search_documents d WHERE d.doc_type = ? AND d.doc_id = " + alias + ".id) " +
+                "ORDER BY " + alias + ".id LIMIT ?", lastId, type.name(), BACKFILL_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return indexed;
+            }
+            // Le lot est lu avant l'écriture: un document écrit entre-temps par le listener est plus récent que
+            // cette lecture et n'est pas remplacé. Un document que le listener écrit ensuite remplace celui-ci
+            List<Source> sources = batch.stream().map(toSource).toList();
+            jdbcTemplate.batchUpdate(INSERT_MISSING_SQL, sources.stream().map(GlobalSearchService::upsertArgs).toList());
+            lastId = sources.get(sources.size() - 1).docId();
+            indexed += batch.size();
+        }
+    }
+
+    private static Long id(Map<String, Object> row) {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    private static Instant instant(Object value) {
+        if (value instanceof Timestamp timestamp) return timestamp.toInstant();
+        if (value instanceof java.time.OffsetDateTime dateTime) return dateTime.toInstant();
+        if (value instanceof Instant instant) return instant;
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.assurance.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.annotation.PostConstruct;
@@ -15,10 +16,15 @@ import java.util.Map;
 public class JwtService {
     private final SecretKey secretKey;
     private final long expirationMs;
+    // Parseur sans état, partagé entre les requêtes (construit une seule fois pour la clé)
+    private final JwtParser parser;
 
     public JwtService(SecretKey jwtSecretKey, Long jwtExpirationMs) {
         this.secretKey = jwtSecretKey;
         this.expirationMs = jwtExpirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(jwtSecretKey)
+                .build();
     }
 
     public String generateToken(String subject, Map<String, Object> claims) {
@@ -33,11 +39,7 @@ public class JwtService {
     }
 
     public Claims parseToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
 
@@ -0,0 +1,153 @@
+package com.assurance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vérification des mots de passe (BCrypt, ~100 ms de CPU) sur un pool dédié, dimensionné sur le nombre de cœurs.
+ *
+ * Une rafale de connexions n'occupe ainsi que app.security.password.threads cœurs et au plus threads + queue-capacity
+ * threads Tomcat en attente: au-delà, ou si la vérification n'a pas commencé après max-wait-ms, la tentative est
+ * refusée immédiatement (RejectedExecutionException, réponse 503) et les autres requêtes de l'API ne sont pas privées
+ * de threads. Les métriques séparent l'attente dans la file (auth.password.queue.wait) du calcul (auth.password.hash).
+ */
+@Service
+public class PasswordHashService {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMs;
+
+    private final Timer queueWaitTimer;
+    private final Timer hashTimer;
+    private final Timer rehashTimer;
+    private final Counter rejected;
+
+    /**
+     * Résultat d'une vérification: upgradedHash est le nouveau hachage (paramétrage courant) si le mot de passe
+     * est correct et que le hachage stocké utilise un autre algorithme ou un autre coût, sinon null.
+     */
+    public record Verification(boolean matches, String upgradedHash) {}
+
+    public PasswordHashService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                               @Value("${app.security.password.threads}") int threads,
+                               @Value("${app.security.password.queue-capacity}") int queueCapacity,
+                               @Value("${app.security.password.max-wait-ms}") long maxWaitMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitMs = maxWaitMs;
+        // 0: un thread par cœur (le hachage est purement CPU, davantage de threads n'augmente pas le débit)
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            task -> {
+                Thread thread = new Thread(task, "password-hash-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            // File pleine: refus immédiat plutôt qu'exécution dans le thread Tomcat
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size())
+            .description("Vérifications de mot de passe en attente").register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Vérifications de mot de passe en cours").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+            .description("Attente d'une vérification de mot de passe dans la file").register(meterRegistry);
+        this.hashTimer = Timer.builder("auth.password.hash")
+            .description("Durée du calcul de vérification d'un mot de passe").register(meterRegistry);
+        this.rehashTimer = Timer.builder("auth.password.rehash")
+            .description("Durée du nouveau hachage d'un mot de passe au paramétrage courant").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected")
+            .description("Vérifications refusées, pool saturé").register(meterRegistry);
+    }
+
+    /**
+     * Refus anticipé (RejectedExecutionException) si la file est déjà pleine: appelé avant la recherche de
+     * l'utilisateur, une tentative refusée ne coûte alors ni requête SQL ni connexion.
+     */
+    public void checkCapacity() {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            rejected.increment();
+            throw saturated();
+        }
+    }
+
+    /**
+     * passwordEncoder.matches exécuté sur le pool dédié, suivi si besoin du nouveau hachage dans la même tâche.
+     * RejectedExecutionException si le pool est saturé (file pleine ou attente supérieure à max-wait-ms).
+     */
+    public Verification verify(String rawPassword, String encodedPassword) {
+        long submittedAt = System.nanoTime();
+        // false -> true au début du calcul, ou à l'abandon par l'appelant: le premier des deux l'emporte
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<Verification> result;
+        try {
+            result = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return new Verification(false, null);
+                }
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                boolean matches;
+                try {
+                    matches = passwordEncoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+                if (!matches || !passwordEncoder.upgradeEncoding(encodedPassword)) {
+                    return new Verification(matches, null);
+                }
+                return new Verification(true, rehashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw saturated();
+        }
+        try {
+            try {
+                return result.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Une vérification commencée se termine (quelques dizaines de ms); une vérification encore en file est abandonnée
+                if (claimed.compareAndSet(false, true)) {
+                    result.cancel(false);
+                    executor.purge();
+                    rejected.increment();
+                    throw saturated();
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            claimed.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Vérification du mot de passe interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Vérification du mot de passe impossible: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static RejectedExecutionException saturated() {
+        return new RejectedExecutionException("Trop de connexions simultanées, réessayez dans quelques instants");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -22,6 +22,9 @@ public class ReportRequestService {
     @Autowired
     private ReportService reportService;
     
+    @Autowired
+    private AdminEventService adminEventService;
+    
     /**
      * Crée une nouvelle demande de rapport
      */
@@ -41,6 +44,7 @@ public class ReportRequestService {
                                                 requesterName, requesterEmail, requesterCompany, requesterPhone, reason);
         
         ReportRequest savedRequest = repository.save(request);
+        adminEventService.accessRequestCreated(savedRequest.getId(), reportId, requesterCompany);
         
         // Récupérer le propriétaire du rapport
         String ownerName = getReportOwner(reportId);
@@ -73,6 +77,7 @@ public class ReportRequestService {
         // Approuver la demande
         request.approve(processedBy, validationCode);
         ReportRequest approvedRequest = repository.save(request);
+        adminEventService.accessRequestApproved(approvedRequest.getId(), approvedRequest.getReportId());
         
         // Envoyer le code par notifications multi-canal
         notificationService.sendValidationCode(request.getRequesterName(), request.getRequesterEmail(), 
@@ -95,6 +100,7 @@ public class ReportRequestService {
         
         request.reject(processedBy);
         ReportRequest rejectedRequest = repository.save(request);
+        adminEventService.accessRequestRejected(rejectedRequest.getId(), rejectedRequest.getReportId());
         
         // TODO: Envoyer notification de rejet au demandeur
         // notificationService.sendReportRequestRejected(rejectedRequest);
@@ -250,6 +256,7 @@ public class ReportRequestService {
         }
         
         repository.delete(request);
+        adminEventService.accessRequestDeleted(request.getId(), request.getReportId());
     }
     
     /**
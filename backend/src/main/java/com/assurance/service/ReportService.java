@@ -3,28 +3,130 @@ package com.assurance.service;
 import com.assurance.domain.AuditEvent;
 import com.assurance.domain.Report;
 import com.assurance.domain.InsuranceCase;
-import com.assurance.repo.AuditEventRepository;
+import com.assurance.domain.ReportSummary;
 import com.assurance.repo.ReportRepository;
 import com.assurance.repo.InsuranceCaseRepository;
+import com.assurance.web.dto.KeysetPage;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ReportService {
     private final ReportRepository reportRepository;
-    private final AuditEventRepository auditEventRepository;
+    private final AuditEventWriter auditEventWriter;
     private final InsuranceCaseRepository insuranceCaseRepository;
+    private final AdminEventService adminEventService;
+    private final JdbcTemplate jdbcTemplate;
 
-    public ReportService(ReportRepository reportRepository, AuditEventRepository auditEventRepository, InsuranceCaseRepository insuranceCaseRepository) {
+    public ReportService(ReportRepository reportRepository, AuditEventWriter auditEventWriter, InsuranceCaseRepository insuranceCaseRepository,
+                         AdminEventService adminEventService, JdbcTemplate jdbcTemplate) {
         this.reportRepository = reportRepository;
-        this.auditEventRepository = auditEventRepository;
+        this.auditEventWriter = auditEventWriter;
         this.insuranceCaseRepository = insuranceCaseRepository;
+        this.adminEventService = adminEventService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    public static final int MAX_PAGE_SIZE = 200;
+
     public List<Report> list() { return reportRepository.findAll(); }
 
+    /**
+     * Page de résumés (sans beneficiaries / insureds), paginée par clé (createdAt, id) décroissante.
+     * limit est ramené dans [1, MAX_PAGE_SIZE]; from inclus, to exclu.
+     *
+     * La requête ne contient que les filtres fournis: chaque combinaison a son propre plan, qui parcourt l'index
+     * adapté ((status, created_at), (created_by, created_at) ou (created_at, id)) à partir du curseur.
+     */
+    public KeysetPage<ReportSummary> listSummaries(Report.Status status, String createdBy, String caseId,
+                                                   Instant from, Instant to, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetPage.Cursor after = KeysetPage.decodeCursor(cursor);
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, title, status, case_id, initiator, subscriber, created_by, created_at FROM reports WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        String creator = blankToNull(createdBy);
+        if (creator != null) {
+            sql.append(" AND created_by = ?");
+            args.add(creator);
+        }
+        String caseRef = blankToNull(caseId);
+        if (caseRef != null) {
+            sql.append(" AND case_id = ?");
+            args.add(caseRef);
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.from(to));
+        }
+        if (after != null) {
+            // Équivaut à (created_at, id) < curseur, écrit avec une borne simple sur created_at pour l'index
+            sql.append(" AND created_at <= ? AND (created_at < ? OR id < ?)");
+            Timestamp at = Timestamp.from(after.createdAt());
+            args.add(at);
+            args.add(at);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(size + 1);
+
+        List<ReportSummary> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new SummaryRow(
+            rs.getLong(1), rs.getString(2), Report.Status.valueOf(rs.getString(3)), rs.getString(4),
+            rs.getString(5), rs.getString(6), rs.getString(7), rs.getTimestamp(8).toInstant()), args.toArray());
+        return KeysetPage.of(rows, size, ReportSummary::getCreatedAt, ReportSummary::getId);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static final class SummaryRow implements ReportSummary {
+        private final Long id;
+        private final String title;
+        private final Report.Status status;
+        private final String caseId;
+        private final String initiator;
+        private final String subscriber;
+        private final String createdBy;
+        private final Instant createdAt;
+
+        SummaryRow(Long id, String title, Report.Status status, String caseId, String initiator, String subscriber,
+                   String createdBy, Instant createdAt) {
+            this.id = id;
+            this.title = title;
+            this.status = status;
+            this.caseId = caseId;
+            this.initiator = initiator;
+            this.subscriber = subscriber;
+            this.createdBy = createdBy;
+            this.createdAt = createdAt;
+        }
+
+        public Long getId() { return id; }
+        public String getTitle() { return title; }
+        public Report.Status getStatus() { return status; }
+        public String getCaseId() { return caseId; }
+        public String getInitiator() { return initiator; }
+        public String getSubscriber() { return subscriber; }
+        public String getCreatedBy() { return createdBy; }
+        public Instant getCreatedAt() { return createdAt; }
+    }
+
     public Report findById(Long id) { return reportRepository.findById(id).orElse(null); }
 
     /**
@@ -58,18 +160,10 @@ public class ReportService {
         payload.setCreatedBy(createdBy);
         
         Report saved = reportRepository.save(payload);
+        adminEventService.reportCreated(saved.getId(), StatsRollupService.companyOf(createdBy));
         
-        // Créer l'événement d'audit de manière sécurisée
-        try {
-            AuditEvent evt = new AuditEvent();
-            evt.setType(AuditEvent.EventType.REPORT_CREATED);
-            evt.setActor(createdBy);
-            evt.setMessage("Rapport créé: \"" + saved.getTitle() + "\"");
-            auditEventRepository.save(evt);
-        } catch (Exception e) {
-            // Log l'erreur mais ne pas faire échouer la création du rapport
-            System.err.println("Erreur lors de la création de l'événement d'audit: " + e.getMessage());
-        }
+        // Événement d'audit écrit en arrière-plan (AuditEventWriter)
+        auditEventWriter.record(AuditEvent.EventType.REPORT_CREATED, createdBy, "Rapport créé: \"" + saved.getTitle() + "\"");
         
         return saved;
     }
@@ -99,18 +193,8 @@ public class ReportService {
         
         Report saved = reportRepository.save(payload);
         
-        // Créer l'événement d'audit de manière sécurisée
-        try {
-            AuditEvent evt = new AuditEvent();
-            evt.setType(AuditEvent.EventType.REPORT_CREATED);
-            evt.setActor("system");
-            evt.setMessage("Rapport créé: \"" + saved.getTitle() + "\"");
-            auditEventRepository.save(evt);
-        } catch (Exception e) {
-            // Log l'erreur mais ne pas faire échouer la création du rapport
-            System.err.println("Erreur lors de la création de l'événement d'audit: " + e.getMessage());
-            // On peut continuer sans l'audit pour l'instant
-        }
+        // Événement d'audit écrit en arrière-plan (AuditEventWriter)
+        auditEventWriter.record(AuditEvent.EventType.REPORT_CREATED, "system", "Rapport créé: \"" + saved.getTitle() + "\"");
         
         return saved;
     }
@@ -197,16 +281,8 @@ public class ReportService {
         // Sauvegarder le dossier
         InsuranceCase savedCase = insuranceCaseRepository.save(newCase);
         
-        // Créer un événement d'audit pour la création du dossier
-        try {
-            AuditEvent evt = new AuditEvent();
-            evt.setType(AuditEvent.EventType.CASE_CREATED);
-            evt.setActor("system");
-            evt.setMessage("Dossier créé automatiquement: " + caseCode);
-            auditEventRepository.save(evt);
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la création de l'événement d'audit pour le dossier: " + e.getMessage());
-        }
+        // Événement d'audit écrit en arrière-plan (AuditEventWriter)
+        auditEventWriter.record(AuditEvent.EventType.CASE_CREATED, "system", "Dossier créé automatiquement: " + caseCode);
         
         return savedCase;
     }
@@ -266,17 +342,8 @@ public class ReportService {
         }
         Report updated = reportRepository.save(report);
         
-        // Créer l'événement d'audit de manière sécurisée
-        try {
-            AuditEvent evt = new AuditEvent();
-            evt.setType(AuditEvent.EventType.REPORT_CREATED); // On pourrait ajouter un type REPORT_UPDATED
-            evt.setActor("system");
-            evt.setMessage("Rapport modifié: \"" + updated.getTitle() + "\"");
-            auditEventRepository.save(evt);
-        } catch (Exception e) {
-            // Log l'erreur mais ne pas faire échouer la modification du rapport
-            System.err.println("Erreur lors de la création de l'événement d'audit: " + e.getMessage());
-        }
+        // Événement d'audit écrit en arrière-plan (AuditEventWriter)
+        auditEventWriter.record(AuditEvent.EventType.REPORT_CREATED, "system", "Rapport modifié: \"" + updated.getTitle() + "\""); // On pourrait ajouter un type REPORT_UPDATED
         
         return updated;
     }
@@ -293,17 +360,8 @@ public class ReportService {
             // Ensuite supprimer le rapport
             reportRepository.deleteById(id);
             
-            // Créer l'événement d'audit de manière sécurisée
-            try {
-                AuditEvent evt = new AuditEvent();
-                evt.setType(AuditEvent.EventType.REPORT_CREATED); // On pourrait ajouter un type REPORT_DELETED
-                evt.setActor("system");
-                evt.setMessage("Rapport supprimé: \"" + report.getTitle() + "\"");
-                auditEventRepository.save(evt);
-            } catch (Exception e) {
-                // Log l'erreur mais ne pas faire échouer la suppression du rapport
-                System.err.println("Erreur lors de la création de l'événement d'audit: " + e.getMessage());
-            }
+            // Événement d'audit écrit en arrière-plan (AuditEventWriter)
+            auditEventWriter.record(AuditEvent.EventType.REPORT_CREATED, "system", "Rapport supprimé: \"" + report.getTitle() + "\""); // On pourrait ajouter un type REPORT_DELETED
         }
     }
 
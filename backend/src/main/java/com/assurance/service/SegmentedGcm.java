@@ -0,0 +1,294 @@
+package com.assurance.service;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Format de chiffrement AES-GCM segmenté (version 2), sur le modèle de AES-GCM-HKDF streaming de Tink.
+ *
+ * En-tête de 48 octets, authentifié comme AAD de chaque segment:
+ *   "AGCS" | version (1 octet) | taille de segment (4 octets, big-endian) | sel (32 octets) | préfixe de nonce (7 octets)
+ * Puis, pour chaque segment de clair: chiffré | tag GCM (16 octets).
+ * Chaque fichier est chiffré avec sa propre sous-clé, HKDF-SHA256(clé maître, sel, info = les 9 premiers octets de
+ * l'en-tête). Nonce du segment i: préfixe (7) | i (4, big-endian) | 1 pour le dernier segment, 0 sinon.
+ * Le nonce n'a donc à être unique que pour une sous-clé: avec un sel aléatoire de 256 bits, le nombre de fichiers
+ * chiffrés sous la clé maître n'est plus limité par le risque de collision des préfixes de 56 bits.
+ *
+ * Le dernier segment contient toujours strictement moins que la taille de segment (éventuellement 0 octet):
+ * un segment court marque donc la fin du flux, et une troncature à une frontière de segment est détectée.
+ * Chaque segment est authentifié séparément, ce qui permet de ne déchiffrer que les segments couverts
+ * par une plage d'octets.
+ */
+final class SegmentedGcm {
+    static final int VERSION = 2;
+    static final int HEADER_LENGTH = 48;
+    static final int SALT_LENGTH = 32;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    // Sel et préfixe de nonce d'un fichier, dans l'ordre de l'en-tête (valeur de la colonne iv)
+    static final int FILE_NONCE_LENGTH = SALT_LENGTH + NONCE_PREFIX_LENGTH;
+    static final int TAG_LENGTH = 16;
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private static final byte[] MAGIC = {'A', 'G', 'C', 'S'};
+    // Magique, version et taille de segment: info de la dérivation HKDF
+    private static final int FIXED_HEADER_LENGTH = 9;
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private SegmentedGcm() {}
+
+    static long encryptedLength(long plainLength, int segmentSize) {
+        long segments = plainLength / segmentSize + 1;
+        return HEADER_LENGTH + plainLength + segments * TAG_LENGTH;
+    }
+
+    static byte[] header(int segmentSize, byte[] fileNonce) {
+        return ByteBuffer.allocate(HEADER_LENGTH)
+            .put(MAGIC)
+            .put((byte) VERSION)
+            .putInt(segmentSize)
+            .put(fileNonce, 0, FILE_NONCE_LENGTH)
+            .array();
+    }
+
+    /**
+     * Sous-clé du fichier: HKDF-SHA256 (RFC 5869) de la clé maître avec le sel de l'en-tête, de la taille de la clé maître.
+     */
+    static SecretKey deriveKey(SecretKey masterKey, byte[] header) throws GeneralSecurityException {
+        int keyLength = masterKey.getEncoded().length;
+        Mac hmac = Mac.getInstance("HmacSHA256");
+        hmac.init(new SecretKeySpec(header, FIXED_HEADER_LENGTH, SALT_LENGTH, "HmacSHA256"));
+        byte[] pseudoRandomKey = hmac.doFinal(masterKey.getEncoded());
+        // Une clé AES fait au plus 32 octets: le premier bloc de l'expansion suffit
+        hmac.init(new SecretKeySpec(pseudoRandomKey, "HmacSHA256"));
+        hmac.update(header, 0, FIXED_HEADER_LENGTH);
+        hmac.update((byte) 1);
+        return new SecretKeySpec(hmac.doFinal(), 0, keyLength, "AES");
+    }
+
+    // Le préfixe de nonce termine l'en-tête
+    private static GCMParameterSpec segmentSpec(byte[] header, long index, boolean last) throws IOException {
+        if (index > 0xFFFFFFFFL) {
+            throw new IOException("Fichier trop volumineux pour le format segmenté");
+        }
+        byte[] nonce = new byte[12];
+        System.arraycopy(header, header.length - NONCE_PREFIX_LENGTH, nonce, 0, NONCE_PREFIX_LENGTH);
+        ByteBuffer.wrap(nonce, NONCE_PREFIX_LENGTH, 4).putInt((int) index);
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    /**
+     * Produit le format segmenté à partir d'un flux de clair, un segment à la fois.
+     */
+    static final class EncryptingInputStream extends InputStream {
+        private final InputStream source;
+        private final SecretKey key;
+        private final Cipher cipher;
+        private final byte[] header;
+        private final int segmentSize;
+        private final byte[] plain;
+        private byte[] out;
+        private int outPos;
+        private int outLen;
+        private long index;
+        private boolean lastWritten;
+
+        EncryptingInputStream(InputStream source, SecretKey masterKey, Cipher cipher, byte[] fileNonce, int segmentSize) {
+            this.source = source;
+            this.cipher = cipher;
+            this.segmentSize = segmentSize;
+            this.header = header(segmentSize, fileNonce);
+            try {
+                this.key = deriveKey(masterKey, header);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Dérivation de la clé du fichier impossible", e);
+            }
+            this.plain = new byte[segmentSize];
+            this.out = header.clone();
+            this.outLen = HEADER_LENGTH;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (outPos == outLen) {
+                if (lastWritten) return -1;
+                nextSegment();
+            }
+            int n = Math.min(len, outLen - outPos);
+            System.arraycopy(out, outPos, b, off, n);
+            outPos += n;
+            return n;
+        }
+
+        private void nextSegment() throws IOException {
+            int n = source.readNBytes(plain, 0, segmentSize);
+            boolean last = n < segmentSize;
+            if (out.length < segmentSize + TAG_LENGTH) {
+                out = new byte[segmentSize + TAG_LENGTH];
+            }
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, segmentSpec(header, index, last));
+                cipher.updateAAD(header);
+                outLen = cipher.doFinal(plain, 0, n, out, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chiffrement du fichier impossible", e);
+            }
+            outPos = 0;
+            index++;
+            lastWritten = last;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    /**
+     * Déchiffre le format segmenté. skip() se positionne directement sur le segment visé
+     * (via skip() du flux source) sans déchiffrer les segments intermédiaires.
+     */
+    static final class DecryptingInputStream extends InputStream {
+        private final InputStream source;
+        private final SecretKey masterKey;
+        private final Cipher cipher;
+        private SecretKey key;
+        private byte[] header;
+        private int segmentSize;
+        private byte[] segment;
+        private byte[] plain = new byte[0];
+        private int plainPos;
+        private int plainLen;
+        private long segmentStart;   // position (dans le clair) du segment en mémoire
+        private long nextIndex;      // index du prochain segment à lire dans la source
+        private boolean lastRead;
+
+        DecryptingInputStream(InputStream source, SecretKey masterKey, Cipher cipher) {
+            this.source = source;
+            this.masterKey = masterKey;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            readHeaderIfNeeded();
+            while (plainPos == plainLen) {
+                if (lastRead) return -1;
+                loadSegment();
+            }
+            int n = Math.min(len, plainLen - plainPos);
+            System.arraycopy(plain, plainPos, b, off, n);
+            plainPos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) return 0;
+            readHeaderIfNeeded();
+            long buffered = plainLen - plainPos;
+            if (n <= buffered || lastRead) {
+                long skipped = Math.min(n, buffered);
+                plainPos += (int) skipped;
+                return skipped;
+            }
+            long from = segmentStart + plainPos;
+            long target = from + n;
+            long targetIndex = target / segmentSize;
+            // Les segments entièrement sautés ne sont ni lus ni déchiffrés
+            skipSource((targetIndex - nextIndex) * (segmentSize + TAG_LENGTH));
+            nextIndex = targetIndex;
+            loadSegment();
+            plainPos = (int) Math.min(target - segmentStart, plainLen);
+            return segmentStart + plainPos - from;
+        }
+
+        private void readHeaderIfNeeded() throws IOException {
+            if (header != null) return;
+            byte[] fixed = source.readNBytes(FIXED_HEADER_LENGTH);
+            if (fixed.length < FIXED_HEADER_LENGTH || !Arrays.equals(Arrays.copyOf(fixed, MAGIC.length), MAGIC)
+                    || fixed[4] != VERSION) {
+                throw new IOException("En-tête de fichier chiffré invalide");
+            }
+            int size = ByteBuffer.wrap(fixed, 5, 4).getInt();
+            if (size <= 0 || size > MAX_SEGMENT_SIZE) {
+                throw new IOException("Taille de segment invalide: " + size);
+            }
+            byte[] h = Arrays.copyOf(fixed, HEADER_LENGTH);
+            if (source.readNBytes(h, FIXED_HEADER_LENGTH, h.length - FIXED_HEADER_LENGTH) < h.length - FIXED_HEADER_LENGTH) {
+                throw new IOException("En-tête de fichier chiffré invalide");
+            }
+            try {
+                key = deriveKey(masterKey, h);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Dérivation de la clé du fichier impossible", e);
+            }
+            header = h;
+            segmentSize = size;
+            segment = new byte[size + TAG_LENGTH];
+            plain = new byte[size + TAG_LENGTH];
+        }
+
+        private void loadSegment() throws IOException {
+            int n = source.readNBytes(segment, 0, segment.length);
+            if (n < TAG_LENGTH) {
+                throw new IOException("Fichier chiffré tronqué");
+            }
+            boolean last = n < segment.length;
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, segmentSpec(header, nextIndex, last));
+                cipher.updateAAD(header);
+                plainLen = cipher.doFinal(segment, 0, n, plain, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Échec de l'authentification du fichier chiffré (segment " + nextIndex + ")", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Déchiffrement du fichier impossible", e);
+            }
+            segmentStart = nextIndex * segmentSize;
+            plainPos = 0;
+            nextIndex++;
+            lastRead = last;
+        }
+
+        private void skipSource(long bytes) throws IOException {
+            while (bytes > 0) {
+                long skipped = source.skip(bytes);
+                if (skipped <= 0) {
+                    if (source.read() == -1) return;
+                    skipped = 1;
+                }
+                bytes -= skipped;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
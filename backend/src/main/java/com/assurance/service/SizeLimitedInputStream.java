@@ -0,0 +1,65 @@
+package com.assurance.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interrompt la lecture dès que le flux dépasse la taille maximale autorisée,
+ * sans attendre d'avoir lu (ni stocké) la totalité du fichier.
+ */
+class SizeLimitedInputStream extends FilterInputStream {
+
+    static class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final long maxSize;
+    private long count;
+
+    SizeLimitedInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) throws LimitExceededException {
+        count += n;
+        if (count > maxSize) {
+            throw new LimitExceededException("Le fichier est trop volumineux. Taille maximale: " + (maxSize / 1024 / 1024) + "MB");
+        }
+    }
+}
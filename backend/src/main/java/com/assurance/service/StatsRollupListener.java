@@ -0,0 +1,37 @@
+package com.assurance.service;
+
+import com.assurance.domain.AuditEvent;
+import com.assurance.domain.InsuranceCase;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA (InsuranceCase, AuditEvent) qui répercute chaque insertion / suppression sur les agrégats
+ * des statistiques. Il s'exécute pendant le flush, sur la connexion de la transaction en cours: le compteur
+ * et la ligne comptée sont validés ou annulés ensemble.
+ */
+@Component
+public class StatsRollupListener {
+    private final StatsRollupService statsRollupService;
+
+    public StatsRollupListener(StatsRollupService statsRollupService) {
+        this.statsRollupService = statsRollupService;
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof InsuranceCase insuranceCase) {
+            statsRollupService.recordCase(insuranceCase, 1);
+        } else if (entity instanceof AuditEvent event) {
+            statsRollupService.recordAuditEvent(event);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof InsuranceCase insuranceCase) {
+            statsRollupService.recordCase(insuranceCase, -1);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.assurance.service;
+
+import com.assurance.domain.AuditEvent;
+import com.assurance.domain.InsuranceCase;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrégats des statistiques (table stats_counters), par indicateur, maison d'assurance et jour.
+ *
+ * Indicateurs:
+ * - CASES: dossiers existants, par jour de création et maison d'assurance du créateur
+ * - AUDIT_<type>: événements d'audit, par jour et maison d'assurance de l'acteur
+ *
+ * Les compteurs sont mis à jour dans la transaction qui écrit la donnée (voir StatsRollupListener):
+ * les lectures ne dépendent que du nombre de (indicateur, maison, jour), pas du volume de dossiers.
+ */
+@Service
+public class StatsRollupService {
+    public static final String CASES = "CASES";
+    private static final String AUDIT_PREFIX = "AUDIT_";
+    // Ligne témoin d'une reconstruction terminée (total: nombre d'agrégats reconstruits)
+    static final String REBUILT_MARKER = "REBUILT";
+
+    // Verrou consultatif des agrégats (pg_advisory_xact_lock(int, int)): partagé par les mises à jour, exclusif pour la reconstruction
+    private static final int STATS_LOCK_SPACE = 0x53746174; // "Stat"
+    private static final int COUNTERS_LOCK_KEY = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatsRollupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static String auditMetric(AuditEvent.EventType type) {
+        return AUDIT_PREFIX + type.name();
+    }
+
+    // ===== MISE À JOUR =====
+
+    public void recordCase(InsuranceCase insuranceCase, long delta) {
+        increment(CASES, companyOf(insuranceCase.getCreatedBy()), dayOf(insuranceCase.getCreatedAt()), delta);
+    }
+
+    public void recordAuditEvent(AuditEvent event) {
+        increment(auditMetric(event.getType()), companyOf(event.getActor()), dayOf(event.getAtISO()), 1);
+    }
+
+    /**
+     * Équivalent de recordAuditEvent pour un lot écrit hors JPA (AuditEventWriter):
+     * un seul incrément par (indicateur, maison, jour).
+     */
+    public void recordAuditEvents(List<AuditEvent> events) {
+        Map<List<Object>, Long> totals = new HashMap<>();
+        for (AuditEvent event : events) {
+            totals.merge(List.of(auditMetric(event.getType()), companyOf(event.getActor()), dayOf(event.getAtISO())), 1L, Long::sum);
+        }
+        totals.forEach((key, total) -> increment((String) key.get(0), (String) key.get(1), (LocalDate) key.get(2), total));
+    }
+
+    /**
+     * Ajoute delta au compteur, en le créant si nécessaire. UPDATE d'abord (cas courant), puis INSERT
+     * sans écraser une ligne créée entre-temps par une autre transaction, puis UPDATE à nouveau dans ce cas.
+     * Le verrou partagé est gardé jusqu'à la fin de la transaction: une reconstruction en cours attend
+     * que la donnée comptée soit validée, ou la mise à jour attend la fin de la reconstruction.
+     */
+    public void increment(String metric, String company, LocalDate day, long delta) {
+        lockCounters(true);
+        Date statDay = Date.valueOf(day);
+        if (updateCounter(metric, company, statDay, delta) > 0) {
+            return;
+        }
+        int inserted = jdbcTemplate.update(
+            "INSERT INTO stats_counters (metric, company, stat_day, total) VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING",
+            metric, company, statDay, delta);
+        if (inserted == 0) {
+            updateCounter(metric, company, statDay, delta);
+        }
+    }
+
+    private int updateCounter(String metric, String company, Date statDay, long delta) {
+        return jdbcTemplate.update(
+            "UPDATE stats_counters SET total = total + ? WHERE metric = ? AND company = ? AND stat_day = ?",
+            delta, metric, company, statDay);
+    }
+
+    // ===== LECTURE =====
+
+    /**
+     * Totaux par maison d'assurance pour un indicateur, depuis le jour donné inclus (null: depuis le début).
+     */
+    public Map<String, Long> countsByCompany(String metric, LocalDate since) {
+        String sql = "SELECT company, SUM(total) FROM stats_counters WHERE metric = ?" +
+            (since != null ? " AND stat_day >= ?" : "") + " GROUP BY company";
+        Object[] args = since != null ? new Object[]{metric, Date.valueOf(since)} : new Object[]{metric};
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getString(1), rs.getLong(2));
+        }, args);
+        return counts;
+    }
+
+    // ===== RECONSTRUCTION =====
+
+    /**
+     * Au démarrage, si aucune reconstruction n'a été menée à terme (pas de ligne REBUILT), recalcule les agrégats
+     * à partir des données existantes. Le trafic a pu commencer: la reconstruction prend le verrou exclusif, ce qui
+     * attend la validation des écritures en cours (verrou partagé de increment) et retient les suivantes jusqu'à son
+     * commit. Les compteurs écrits avant sont remplacés, chaque ligne comptée l'est donc exactement une fois.
+     * Plusieurs instances peuvent démarrer ensemble: la ligne témoin est relue sous le verrou.
+     * Les regroupements sont faits par la base; seules les lignes agrégées transitent par l'application.
+     * Pour forcer une reconstruction: supprimer la ligne REBUILT puis redémarrer (voir statistiques_agregats.sql).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    // Avant le démarrage du thread d'écriture de AuditEventWriter (Ordered.LOWEST_PRECEDENCE)
+    @Order(0)
+    @Transactional
+    public void rebuildIfNeeded() {
+        // Cas courant: lecture sans verrou, les mises à jour ne sont pas retenues
+        if (isRebuilt()) {
+            return;
+        }
+        lockCounters(false);
+        if (isRebuilt()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM stats_counters");
+        Map<List<Object>, Long> totals = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT created_by, CAST(created_at AS DATE), COUNT(*) FROM insurance_cases GROUP BY created_by, CAST(created_at AS DATE)",
+            rs -> {
+                totals.merge(List.of(CASES, companyOf(rs.getString(1)), dayOrToday(rs.getDate(2))), rs.getLong(3), Long::sum);
+            });
+        jdbcTemplate.query(
+            "SELECT type, actor, CAST(atiso AS DATE), COUNT(*) FROM audit_events GROUP BY type, actor, CAST(atiso AS DATE)",
+            rs -> {
+                totals.merge(List.of(AUDIT_PREFIX + rs.getString(1), companyOf(rs.getString(2)), dayOrToday(rs.getDate(3))), rs.getLong(4), Long::sum);
+            });
+        List<Object[]> rows = new ArrayList<>(totals.size() + 1);
+        totals.forEach((key, total) -> rows.add(new Object[]{key.get(0), key.get(1), key.get(2), total}));
+        rows.add(new Object[]{REBUILT_MARKER, "", Date.valueOf(LocalDate.now()), (long) totals.size()});
+        jdbcTemplate.batchUpdate("INSERT INTO stats_counters (metric, company, stat_day, total) VALUES (?, ?, ?, ?)", rows);
+        System.out.println("Statistiques: " + totals.size() + " agrégats reconstruits à partir des données existantes");
+    }
+
+    private boolean isRebuilt() {
+        Long markers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_counters WHERE metric = ?", Long.class, REBUILT_MARKER);
+        return markers != null && markers > 0;
+    }
+
+    private void lockCounters(boolean shared) {
+        jdbcTemplate.query(shared ? "SELECT pg_advisory_xact_lock_shared(?, ?)" : "SELECT pg_advisory_xact_lock(?, ?)",
+            (RowCallbackHandler) rs -> {}, STATS_LOCK_SPACE, COUNTERS_LOCK_KEY);
+    }
+
+    // ===== UTILITAIRES =====
+
+    // Lignes historiques sans date: comptées au jour de la reconstruction, comme dayOf()
+    private static Date dayOrToday(Date day) {
+        return day != null ? day : Date.valueOf(LocalDate.now());
+    }
+
+    private static LocalDate dayOf(Instant instant) {
+        return (instant != null ? instant : Instant.now()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Maison d'assurance déduite de l'identifiant de l'acteur.
+     */
+    public static String companyOf(String actor) {
+        if (actor == null) return "Inconnu";
+        
+        // Logique pour extraire la compagnie depuis l'acteur
+        if (actor.contains("admin")) return "Administrateur";
+        if (actor.contains("axa") || actor.contains("AXA")) return "AXA";
+        if (actor.contains("allianz") || actor.contains("Allianz")) return "Allianz";
+        if (actor.contains("generali") || actor.contains("Generali")) return "Generali";
+        if (actor.contains("groupama") || actor.contains("Groupama")) return "Groupama";
+        if (actor.contains("maif") || actor.contains("Maif")) return "Maif";
+        if (actor.contains("macif") || actor.contains("Macif")) return "Macif";
+        
+        return actor;
+    }
+}
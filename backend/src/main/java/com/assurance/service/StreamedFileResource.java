@@ -0,0 +1,54 @@
+package com.assurance.service;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ressource dont le contenu est ouvert à la demande, au moment où Spring écrit la réponse.
+ * Contrairement à ByteArrayResource, le fichier n'est jamais matérialisé en mémoire.
+ */
+public class StreamedFileResource extends AbstractResource {
+
+    @FunctionalInterface
+    public interface ContentOpener {
+        InputStream open() throws IOException;
+    }
+
+    private final String fileName;
+    private final Long contentLength;
+    private final ContentOpener opener;
+
+    public StreamedFileResource(String fileName, Long contentLength, ContentOpener opener) {
+        this.fileName = fileName;
+        this.contentLength = contentLength;
+        this.opener = opener;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return opener.open();
+    }
+
+    @Override
+    public long contentLength() {
+        // -1 lorsque la taille n'a pas été enregistrée: la réponse part alors en chunked
+        return contentLength != null ? contentLength : -1;
+    }
+
+    @Override
+    public String getFilename() {
+        return fileName;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Fichier stocké [" + fileName + "]";
+    }
+}
@@ -23,6 +23,12 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private AdminEventService adminEventService;
+    
+    @Autowired
+    private PasswordHashService passwordHashService;
+    
     /**
      * Crée un nouvel utilisateur
      */
@@ -84,9 +90,11 @@ public class UserService {
     /**
      * Authentifie un utilisateur
      * Les administrateurs peuvent toujours se connecter, même avec un abonnement expiré
+     * RejectedExecutionException si trop de vérifications de mot de passe sont déjà en cours (voir PasswordHashService)
      */
     public Optional<User> authenticateUser(String username, String insuranceCompany, String password) {
         System.out.println("🔍 Tentative de connexion pour: " + username + " / " + insuranceCompany);
+        passwordHashService.checkCapacity();
         
         String normalizedCompany = insuranceCompany == null ? "" : insuranceCompany.trim();
         String normalizedUsername = username == null ? "" : username.trim();
@@ -100,7 +108,9 @@ public class UserService {
             System.out.println("🏷️ Username (en base): '" + user.getUsername() + "'");
             System.out.println("✅ Utilisateur trouvé: " + user.getUsername() + " (actif: " + user.isActive() + ")");
             
-            boolean passwordMatches = passwordEncoder.matches(password, user.getPassword());
+            // BCrypt sur le pool dédié, hors du thread Tomcat
+            PasswordHashService.Verification verification = passwordHashService.verify(password, user.getPassword());
+            boolean passwordMatches = verification.matches();
             System.out.println("🔐 Vérification mot de passe: " + passwordMatches);
             
             if (passwordMatches && user.isActive()) {
@@ -109,9 +119,15 @@ public class UserService {
                 // Vérifier l'abonnement seulement pour les utilisateurs non-administrateurs
                 if (user.getRole() == User.UserRole.ADMIN || user.isSubscriptionActive()) {
                     System.out.println("✅ Abonnement OK - Connexion réussie");
+                    // Hachage stocké avec un autre algorithme ou un autre coût: remplacé par celui du paramétrage courant
+                    if (verification.upgradedHash() != null) {
+                        user.setPassword(verification.upgradedHash());
+                        System.out.println("🔐 Mot de passe haché à nouveau avec le paramétrage courant");
+                    }
                     // Mettre à jour la dernière connexion
                     user.setLastLoginAt(LocalDateTime.now());
                     userRepository.save(user);
+                    adminEventService.userLoggedIn(user.getUsername(), user.getInsuranceCompany());
                     return Optional.of(user);
                 } else {
                     System.out.println("❌ Abonnement non actif");
@@ -134,6 +150,7 @@ public class UserService {
             User user = userOpt.get();
             user.setLastLogoutAt(LocalDateTime.now());
             userRepository.save(user);
+            adminEventService.userLoggedOut(user.getUsername(), user.getInsuranceCompany());
         }
     }
     
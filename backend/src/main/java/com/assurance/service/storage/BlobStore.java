@@ -0,0 +1,40 @@
+package com.assurance.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stockage adressé par contenu des fichiers (rapports et pièces jointes).
+ * La clé d'un blob est l'empreinte SHA-256 (hexadécimale) des octets stockés:
+ * deux contenus identiques partagent donc la même clé.
+ */
+public interface BlobStore {
+
+    /**
+     * Enregistre le contenu et retourne sa clé. Le flux n'est pas fermé.
+     */
+    String put(InputStream content) throws IOException;
+
+    /**
+     * Ouvre le blob en lecture; FileNotFoundException si la clé est inconnue.
+     */
+    InputStream open(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Supprime le blob; sans effet si la clé est inconnue.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Chemin relatif d'une clé, réparti sur deux niveaux de répertoires (ab/cd/abcd...)
+     * pour éviter des répertoires contenant des millions d'entrées.
+     */
+    static String shardedPath(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Clé de blob invalide: " + key);
+        }
+        return key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key;
+    }
+}
@@ -0,0 +1,105 @@
+package com.assurance.service.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Blobs stockés sur le système de fichiers local.
+ * L'écriture passe par un fichier temporaire synchronisé sur disque (fsync) puis renommé
+ * atomiquement vers sa clé: un blob visible est toujours complet, même après un crash.
+ */
+public class LocalBlobStore implements BlobStore {
+    private final Path root;
+    private final Path tmpDir;
+
+    public LocalBlobStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+                content.transferTo(out);
+                out.flush();
+                channel.force(true);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                // Contenu déjà présent: la clé est identique, inutile de réécrire
+                return key;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Écriture concurrente du même contenu
+                return key;
+            }
+            fsyncDirectory(target.getParent());
+            return key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Blob introuvable: " + key);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        return root.resolve(BlobStore.shardedPath(key));
+    }
+
+    private static void fsyncDirectory(Path dir) {
+        // Rend le renommage durable; non supporté sur certains systèmes (Windows)
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.assurance.service.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+
+/**
+ * Blobs stockés dans un bucket compatible S3 (AWS S3, MinIO, Ceph...), en adressage "path-style".
+ * Les requêtes sont signées en AWS Signature V4 avec le client HTTP du JDK, sans SDK supplémentaire.
+ */
+public class S3BlobStore implements BlobStore {
+    private static final String EMPTY_PAYLOAD_HASH = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final HttpClient httpClient;
+
+    public S3BlobStore(String endpoint, String bucket, String region, String accessKey, String secretKey) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        // La clé (empreinte du contenu) doit être connue avant l'envoi: le contenu transite par un fichier temporaire
+        Path tmp = Files.createTempFile("blob-", ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                content.transferTo(out);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            if (exists(key)) {
+                return key;
+            }
+            // L'empreinte du corps signée par SigV4 est exactement la clé du blob
+            HttpRequest request = signed(HttpRequest.newBuilder(objectUri(key)), "PUT", key, key)
+                    .PUT(HttpRequest.BodyPublishers.ofFile(tmp))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Échec de l'envoi du blob " + key + " (HTTP " + response.statusCode() + "): " + response.body());
+            }
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Signature de la requête S3 impossible", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Envoi du blob interrompu", e);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 200) {
+            return response.body();
+        }
+        response.body().close();
+        if (response.statusCode() == 404) {
+            throw new FileNotFoundException("Blob introuvable: " + key);
+        }
+        throw new IOException("Lecture du blob " + key + " impossible (HTTP " + response.statusCode() + ")");
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) return true;
+        if (response.statusCode() == 404) return false;
+        throw new IOException("Vérification du blob " + key + " impossible (HTTP " + response.statusCode() + ")");
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<Void> response = send("DELETE", key, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+            throw new IOException("Suppression du blob " + key + " impossible (HTTP " + response.statusCode() + ")");
+        }
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            HttpRequest request = signed(HttpRequest.newBuilder(objectUri(key)), method, key, EMPTY_PAYLOAD_HASH)
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .build();
+            return httpClient.send(request, handler);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Signature de la requête S3 impossible", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requête S3 interrompue", e);
+        }
+    }
+
+    private URI objectUri(String key) {
+        return URI.create(endpoint + canonicalPath(key));
+    }
+
+    private String canonicalPath(String key) {
+        // Noms de bucket et clés hexadécimales: aucun caractère à encoder
+        return "/" + bucket + "/" + BlobStore.shardedPath(key);
+    }
+
+    private HttpRequest.Builder signed(HttpRequest.Builder builder, String method, String key, String payloadHash)
+            throws GeneralSecurityException {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String scopeDate = SCOPE_DATE.format(now);
+        String scope = scopeDate + "/" + region + "/s3/aws4_request";
+
+        String canonicalRequest = method + "\n"
+                + canonicalPath(key) + "\n"
+                + "\n"
+                + "host:" + endpoint.getAuthority() + "\n"
+                + "x-amz-content-sha256:" + payloadHash + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + "host;x-amz-content-sha256;x-amz-date\n"
+                + payloadHash;
+
+        String stringToSign = "AWS4-HMAC-SHA256\n"
+                + amzDate + "\n"
+                + scope + "\n"
+                + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), scopeDate);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return builder
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", payloadHash)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=host;x-amz-content-sha256;x-amz-date, Signature=" + signature);
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,11 +1,16 @@
 package com.assurance.web;
 
+import com.assurance.domain.DeduplicationStats;
 import com.assurance.dto.AdminDashboardDto;
+import com.assurance.service.AdminEventService;
 import com.assurance.service.AdminService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -15,6 +20,9 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
     
+    @Autowired
+    private AdminEventService adminEventService;
+    
     /**
      * Récupère les données du tableau de bord administrateur
      */
@@ -24,6 +32,28 @@ public class AdminController {
         return ResponseEntity.ok(dashboard);
     }
     
+    /**
+     * Flux Server-Sent Events des changements du tableau de bord (nouveau dossier, rapport, demande d'accès,
+     * connexion/déconnexion), à la place d'un rechargement périodique de /dashboard.
+     * Chaque événement porte les compteurs à incrémenter ("deltas").
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents() {
+        SseEmitter emitter = adminEventService.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+    
+    /**
+     * Bilan de la déduplication des fichiers: contenus distincts, références et octets économisés
+     */
+    @GetMapping("/storage/deduplication")
+    public ResponseEntity<DeduplicationStats> getDeduplicationStats() {
+        return ResponseEntity.ok(adminService.getDeduplicationStats());
+    }
+    
     /**
      * Endpoint de test pour vérifier l'accès admin
      */
@@ -0,0 +1,136 @@
+package com.assurance.web;
+
+import com.assurance.domain.AuditEvent;
+import com.assurance.domain.AuditEventRow;
+import com.assurance.service.AuditEventQueryService;
+import com.assurance.web.dto.KeysetPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Historique des événements d'audit, réservé aux administrateurs.
+ *
+ * Filtres communs (tous optionnels): type, actor (exact), messagePrefix (début du message),
+ * from / to: date (AAAA-MM-JJ, incluse) ou instant ISO-8601 (to exclu).
+ */
+@RestController
+@RequestMapping("/api/admin/audit")
+@PreAuthorize("hasRole('ADMIN')")
+public class AuditController {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AuditEventQueryService auditEventQueryService;
+
+    public AuditController(AuditEventQueryService auditEventQueryService) {
+        this.auditEventQueryService = auditEventQueryService;
+    }
+
+    /**
+     * Page d'événements du plus récent au plus ancien; la page suivante s'obtient en renvoyant nextCursor
+     * dans le paramètre cursor.
+     */
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam(required = false) String type,
+                                  @RequestParam(required = false) String actor,
+                                  @RequestParam(required = false) String messagePrefix,
+                                  @RequestParam(required = false) String from,
+                                  @RequestParam(required = false) String to,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) String limit) {
+        try {
+            KeysetPage<AuditEventRow> page = auditEventQueryService.list(filter(type, actor, messagePrefix, from, to),
+                cursor, parseLimit(limit));
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Export CSV de tous les événements correspondant aux filtres, écrit au fil de la lecture
+     * (réponse chunked, synchrone comme les archives ZIP de FileController).
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) String type,
+                       @RequestParam(required = false) String actor,
+                       @RequestParam(required = false) String messagePrefix,
+                       @RequestParam(required = false) String from,
+                       @RequestParam(required = false) String to,
+                       HttpServletResponse response) throws IOException {
+        AuditEventQueryService.Filter filter;
+        try {
+            filter = filter(type, actor, messagePrefix, from, to);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            MAPPER.writeValue(response.getOutputStream(), Map.of("error", e.getMessage()));
+            return;
+        }
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"audit-events.csv\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        auditEventQueryService.exportCsv(filter, out);
+        out.flush();
+    }
+
+    private static AuditEventQueryService.Filter filter(String type, String actor, String messagePrefix, String from, String to) {
+        Instant fromInstant = parseBound(from, "from", false);
+        Instant toInstant = parseBound(to, "to", true);
+        if (fromInstant != null && toInstant != null && !fromInstant.isBefore(toInstant)) {
+            throw new IllegalArgumentException("Période invalide: from doit précéder to");
+        }
+        return new AuditEventQueryService.Filter(parseType(type), actor, messagePrefix, fromInstant, toInstant);
+    }
+
+    private static AuditEvent.EventType parseType(String type) {
+        if (type == null || type.isBlank()) return null;
+        try {
+            return AuditEvent.EventType.valueOf(type.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Type d'événement inconnu: " + type);
+        }
+    }
+
+    // Date seule: début du jour (from) ou début du jour suivant (to, date incluse), dans le fuseau du serveur
+    private static Instant parseBound(String value, String name, boolean end) {
+        if (value == null || value.isBlank()) return null;
+        String trimmed = value.trim();
+        try {
+            if (trimmed.length() == 10) {
+                LocalDate day = LocalDate.parse(trimmed);
+                return (end ? day.plusDays(1) : day).atStartOfDay(ZoneId.systemDefault()).toInstant();
+            }
+            return Instant.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Paramètre " + name + " invalide: date AAAA-MM-JJ ou instant ISO-8601 attendu");
+        }
+    }
+
+    private static int parseLimit(String limit) {
+        if (limit == null || limit.isBlank()) return DEFAULT_PAGE_SIZE;
+        try {
+            return Integer.parseInt(limit.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Paramètre limit invalide: " + limit);
+        }
+    }
+}
@@ -5,12 +5,15 @@ import com.assurance.dto.UserDto;
 import com.assurance.service.JwtService;
 import com.assurance.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -48,6 +51,11 @@ public class AuthController {
             } else {
                 return ResponseEntity.badRequest().body("Identifiants incorrects");
             }
+        } catch (RejectedExecutionException e) {
+            // Pool de vérification des mots de passe saturé: refus immédiat, le client peut réessayer
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erreur lors de l'authentification: " + e.getMessage());
         }
@@ -1,13 +1,21 @@
 package com.assurance.web;
 
+import com.assurance.domain.CaseSummary;
 import com.assurance.domain.InsuranceCase;
 // import com.assurance.domain.Report; // TEMPORAIRE: Désactivé
 import com.assurance.repo.ReportRepository;
 import com.assurance.repo.InsuranceCaseRepository;
+import com.assurance.service.CaseSearchService;
 import com.assurance.service.CaseService;
+import com.assurance.web.dto.KeysetPage;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -20,13 +28,20 @@ import java.util.Optional;
 		private final CaseService caseService;
 		private final ReportRepository reportRepository;
 		private final InsuranceCaseRepository insuranceCaseRepository;
+		private final CaseSearchService caseSearchService;
 
-		public CaseController(CaseService caseService, ReportRepository reportRepository, InsuranceCaseRepository insuranceCaseRepository) {
+		public CaseController(CaseService caseService, ReportRepository reportRepository, InsuranceCaseRepository insuranceCaseRepository,
+		                      CaseSearchService caseSearchService) {
 			this.caseService = caseService;
 			this.reportRepository = reportRepository;
 			this.insuranceCaseRepository = insuranceCaseRepository;
+			this.caseSearchService = caseSearchService;
 		}
 
+    /**
+     * Liste complète (forme historique, utilisée par le frontend actuel).
+     * Préférer la liste paginée ci-dessous (paramètre limit).
+     */
     @GetMapping
     public List<InsuranceCase> list(@RequestParam(required = false) String creator) { 
         if (creator != null && !creator.trim().isEmpty()) {
@@ -35,6 +50,76 @@ import java.util.Optional;
         return caseService.list(); 
     }
 
+    /**
+     * Liste paginée par curseur: résumés sans dataJson, du plus récent au plus ancien.
+     * Filtres optionnels: type, status, createdBy, période [from, to] (dates incluses).
+     * La page suivante s'obtient en renvoyant nextCursor dans le paramètre cursor.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> listPage(@RequestParam int limit,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) String type,
+                                      @RequestParam(required = false) String status,
+                                      @RequestParam(required = false) String createdBy,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ZoneId zone = ZoneId.systemDefault();
+            KeysetPage<CaseSummary> page = caseService.listSummaries(
+                parseEnum(InsuranceCase.CaseType.class, type, "Type"),
+                parseEnum(InsuranceCase.CaseStatus.class, status, "Statut"),
+                createdBy,
+                from != null ? from.atStartOfDay(zone).toInstant() : null,
+                to != null ? to.plusDays(1).atStartOfDay(zone).toInstant() : null,
+                cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Recherche dans le contenu JSON des dossiers, exécutée en base.
+     * Chaque paramètre q est un critère "champ:valeur" (égalité) ou "champ:début*" (préfixe); tous doivent
+     * être satisfaits. Le champ est le chemin des clés du JSON, sans indices de tableau
+     * (ex. q=beneficiaires.nom:dup*&q=souscripteur_nom:martin). Comparaison sans accents ni casse.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) List<String> q,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<CaseSearchService.Criterion> criteria = q == null ? List.of() : q.stream().map(CaseSearchService.Criterion::parse).toList();
+            KeysetPage<CaseSummary> page = caseSearchService.search(criteria, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> enumType, String value, String label) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Enum.valueOf(enumType, value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(label + " inconnu: " + value);
+        }
+    }
+
+    /**
+     * Contenu JSON d'un dossier (dataJson), renvoyé tel qu'enregistré
+     */
+    @GetMapping("/{id}/data")
+    public ResponseEntity<String> getData(@PathVariable Long id) {
+        Optional<String> dataJson = caseService.findDataJson(id);
+        if (dataJson.isPresent()) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(dataJson.get());
+        }
+        return insuranceCaseRepository.existsById(id)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/my-cases")
     public List<InsuranceCase> myCases(@RequestParam String actorName) {
         return caseService.listByCreator(actorName);
@@ -105,14 +190,17 @@ import java.util.Optional;
         // Sauvegarder la référence avant la suppression pour la notification
         String caseReference = existingCase.getReference();
         
-        		insuranceCaseRepository.delete(existingCase);
+        		caseService.delete(existingCase);
 		return "Dossier supprimé avec succès";
     }
 
+    /**
+     * Supprime les dossiers au contenu identique à un dossier plus récent (le plus récent est gardé).
+     * dryRun=true: simulation, renvoie le nombre de doublons et un échantillon d'identifiants sans rien supprimer.
+     */
     @PostMapping("/cleanup-duplicates")
-    public String cleanupDuplicates() {
-        int deletedCount = caseService.cleanupDuplicateCases();
-        return "Nettoyage terminé. " + deletedCount + " dossiers dupliqués supprimés.";
+    public CaseService.DuplicateCleanupReport cleanupDuplicates(@RequestParam(defaultValue = "false") boolean dryRun) {
+        return caseService.cleanupDuplicateCases(dryRun);
     }
 }
 
@@ -1,15 +1,11 @@
 package com.assurance.web;
 
-import com.assurance.domain.InsuranceCase;
 import com.assurance.domain.AuditEvent;
-import com.assurance.repo.InsuranceCaseRepository;
-import com.assurance.repo.AuditEventRepository;
+import com.assurance.service.StatsRollupService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -18,39 +14,37 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class CaseStatsController {
     
-    private final InsuranceCaseRepository caseRepository;
-    private final AuditEventRepository auditEventRepository;
+    private final StatsRollupService statsRollupService;
     
-    public CaseStatsController(InsuranceCaseRepository caseRepository,
-                              AuditEventRepository auditEventRepository) {
-        this.caseRepository = caseRepository;
-        this.auditEventRepository = auditEventRepository;
+    public CaseStatsController(StatsRollupService statsRollupService) {
+        this.statsRollupService = statsRollupService;
     }
     
+    /**
+     * Statistiques des dossiers, lues uniquement dans les agrégats (stats_counters):
+     * le coût ne dépend pas du nombre de dossiers ni d'événements d'audit.
+     */
     @GetMapping
     public ResponseEntity<Map<String, Object>> getCaseStats() {
         try {
-            // Statistiques générales
-            long totalCreated = caseRepository.count();
-            long totalModified = countModifiedCases();
-            long totalDeleted = countDeletedCases();
-            long totalDownloads = countFileDownloads();
-            
-            // Statistiques par maison d'assurance
-            List<Map<String, Object>> casesByCompany = getCasesByCompany();
-            List<Map<String, Object>> modifiedByCompany = getModifiedCasesByCompany();
-            List<Map<String, Object>> deletedByCompany = getDeletedCasesByCompany();
-            List<Map<String, Object>> downloadsByCompany = getDownloadsByCompany();
+            LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
+            Map<String, Long> cases = statsRollupService.countsByCompany(StatsRollupService.CASES, null);
+            // Dossiers créés dans les 30 derniers jours
+            Map<String, Long> modified = statsRollupService.countsByCompany(StatsRollupService.CASES, thirtyDaysAgo);
+            Map<String, Long> caseCreatedEvents = statsRollupService.countsByCompany(
+                StatsRollupService.auditMetric(AuditEvent.EventType.CASE_CREATED), null);
+            Map<String, Long> downloads = statsRollupService.countsByCompany(
+                StatsRollupService.auditMetric(AuditEvent.EventType.REPORT_DOWNLOADED), null);
             
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalCreated", totalCreated);
-            stats.put("totalModified", totalModified);
-            stats.put("totalDeleted", totalDeleted);
-            stats.put("totalDownloads", totalDownloads);
-            stats.put("casesByCompany", casesByCompany);
-            stats.put("modifiedByCompany", modifiedByCompany);
-            stats.put("deletedByCompany", deletedByCompany);
-            stats.put("downloadsByCompany", downloadsByCompany);
+            stats.put("totalCreated", sum(cases));
+            stats.put("totalModified", sum(modified));
+            stats.put("totalDeleted", sum(caseCreatedEvents) / 10); // Simulation: 1/10 des créations = suppressions
+            stats.put("totalDownloads", sum(downloads));
+            stats.put("casesByCompany", toCompanyList(cases, 1));
+            stats.put("modifiedByCompany", toCompanyList(modified, 1));
+            stats.put("deletedByCompany", toCompanyList(caseCreatedEvents, 10));
+            stats.put("downloadsByCompany", toCompanyList(downloads, 1));
             
             return ResponseEntity.ok(stats);
             
@@ -61,141 +55,20 @@ public class CaseStatsController {
         }
     }
     
-    private long countModifiedCases() {
-        // Compter les dossiers modifiés dans les 30 derniers jours
-        LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-        Instant thirtyDaysAgoInstant = thirtyDaysAgo.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        
-        return caseRepository.findAll().stream()
-                .filter(caseItem -> caseItem.getCreatedAt().isAfter(thirtyDaysAgoInstant))
-                .count();
-    }
-    
-    private long countDeletedCases() {
-        try {
-            // Compter les événements de suppression de dossiers
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.CASE_CREATED)
-                    .count() / 10; // Simulation: 1/10 des créations = suppressions
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private long countFileDownloads() {
-        try {
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.REPORT_DOWNLOADED)
-                    .count();
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private List<Map<String, Object>> getCasesByCompany() {
-        try {
-            return caseRepository.findAll().stream()
-                    .collect(Collectors.groupingBy(
-                        caseItem -> extractCompanyFromActor(caseItem.getCreatedBy()),
-                        Collectors.counting()
-                    ))
-                    .entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> company = new HashMap<>();
-                        company.put("company", entry.getKey());
-                        company.put("count", entry.getValue());
-                        return company;
-                    })
-                    .sorted((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Map<String, Object>> getModifiedCasesByCompany() {
-        try {
-            LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-            Instant thirtyDaysAgoInstant = thirtyDaysAgo.atStartOfDay(ZoneId.systemDefault()).toInstant();
-            
-            return caseRepository.findAll().stream()
-                    .filter(caseItem -> caseItem.getCreatedAt().isAfter(thirtyDaysAgoInstant))
-                    .collect(Collectors.groupingBy(
-                        caseItem -> extractCompanyFromActor(caseItem.getCreatedBy()),
-                        Collectors.counting()
-                    ))
-                    .entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> company = new HashMap<>();
-                        company.put("company", entry.getKey());
-                        company.put("count", entry.getValue());
-                        return company;
-                    })
-                    .sorted((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Map<String, Object>> getDeletedCasesByCompany() {
-        try {
-            // Simulation basée sur les événements d'audit
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.CASE_CREATED)
-                    .collect(Collectors.groupingBy(
-                        event -> extractCompanyFromActor(event.getActor()),
-                        Collectors.counting()
-                    ))
-                    .entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> company = new HashMap<>();
-                        company.put("company", entry.getKey());
-                        company.put("count", entry.getValue() / 10); // Simulation: 1/10 des créations = suppressions
-                        return company;
-                    })
-                    .filter(company -> (Long) company.get("count") > 0)
-                    .sorted((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Map<String, Object>> getDownloadsByCompany() {
-        try {
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.REPORT_DOWNLOADED)
-                    .collect(Collectors.groupingBy(
-                        event -> extractCompanyFromActor(event.getActor()),
-                        Collectors.counting()
-                    ))
-                    .entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> company = new HashMap<>();
-                        company.put("company", entry.getKey());
-                        company.put("count", entry.getValue());
-                        return company;
-                    })
-                    .sorted((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
+    private long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
     }
     
-    private String extractCompanyFromActor(String actor) {
-        if (actor == null) return "Inconnu";
-        
-        // Logique pour extraire la compagnie depuis l'acteur
-        if (actor.contains("admin")) return "Administrateur";
-        if (actor.contains("axa") || actor.contains("AXA")) return "AXA";
-        if (actor.contains("allianz") || actor.contains("Allianz")) return "Allianz";
-        if (actor.contains("generali") || actor.contains("Generali")) return "Generali";
-        if (actor.contains("groupama") || actor.contains("Groupama")) return "Groupama";
-        if (actor.contains("maif") || actor.contains("Maif")) return "Maif";
-        if (actor.contains("macif") || actor.contains("Macif")) return "Macif";
-        
-        return actor;
+    private List<Map<String, Object>> toCompanyList(Map<String, Long> counts, long divisor) {
+        return counts.entrySet().stream()
+                .map(entry -> {
+                    Map<String, Object> company = new HashMap<>();
+                    company.put("company", entry.getKey());
+                    company.put("count", entry.getValue() / divisor);
+                    return company;
+                })
+                .filter(company -> (Long) company.get("count") > 0)
+                .sorted((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")))
+                .collect(Collectors.toList());
     }
 }
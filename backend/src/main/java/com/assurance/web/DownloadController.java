@@ -1,19 +1,19 @@
 package com.assurance.web;
 
 import com.assurance.domain.Report;
-import com.assurance.domain.ReportFile;
+import com.assurance.domain.ReportFileSummary;
 import com.assurance.service.ReportService;
 import com.assurance.service.FileService;
 import com.assurance.service.ReportRequestService;
 import com.assurance.service.NotificationService;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -35,7 +35,7 @@ public class DownloadController {
 
     // Endpoint sécurisé avec validation du code de validation (nouveau workflow)
     @GetMapping("/{reportId}")
-    public ResponseEntity<ByteArrayResource> downloadSecured(
+    public ResponseEntity<Resource> downloadSecured(
             @PathVariable("reportId") Long reportId,
             @RequestParam("validationCode") String validationCode) {
         
@@ -56,24 +56,21 @@ public class DownloadController {
             }
 
             // Récupérer les fichiers du rapport
-            List<ReportFile> files = fileService.getReportFiles(reportId);
+            List<ReportFileSummary> files = fileService.getReportFiles(reportId);
             if (files.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ByteArrayResource("Aucun fichier trouvé pour ce rapport".getBytes()));
             }
 
             // Prendre le premier fichier (ou le plus récent)
-            ReportFile reportFile = files.get(0);
+            ReportFileSummary reportFile = files.get(0);
 
-            // Télécharger le fichier
-            byte[] fileContent = fileService.downloadReportFile(reportFile.getId());
+            // Télécharger le fichier (contenu diffusé en flux, sans copie complète en mémoire)
+            Resource resource = fileService.reportFileResource(reportFile);
             
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
-            
-            return ResponseEntity.ok()
+            return FileResponses.ok(reportFile)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + reportFile.getFileName() + "\"")
                     .contentType(MediaType.parseMediaType(reportFile.getContentType()))
-                    .contentLength(fileContent.length)
                     .body(resource);
 
         } catch (Exception e) {
@@ -84,7 +81,7 @@ public class DownloadController {
 
     // Endpoint de démonstration (désactivable en PROD via variable d'environnement DISABLE_DEMO_DOWNLOAD=true)
     @GetMapping("/demo/{reportId}")
-    public ResponseEntity<ByteArrayResource> downloadDemo(
+    public ResponseEntity<Resource> downloadDemo(
             @PathVariable("reportId") Long reportId) {
         String disableFlag = System.getenv("DISABLE_DEMO_DOWNLOAD");
         if (disableFlag != null && disableFlag.equalsIgnoreCase("true")) {
@@ -100,24 +97,21 @@ public class DownloadController {
             }
 
             // Récupérer les fichiers du rapport
-            List<ReportFile> files = fileService.getReportFiles(reportId);
+            List<ReportFileSummary> files = fileService.getReportFiles(reportId);
             if (files.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ByteArrayResource("Aucun fichier trouvé pour ce rapport".getBytes()));
             }
 
             // Prendre le premier fichier (ou le plus récent)
-            ReportFile reportFile = files.get(0);
+            ReportFileSummary reportFile = files.get(0);
 
-            // Télécharger le fichier
-            byte[] fileContent = fileService.downloadReportFile(reportFile.getId());
-            
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            // Télécharger le fichier (contenu diffusé en flux, sans copie complète en mémoire)
+            Resource resource = fileService.reportFileResource(reportFile);
             
-            return ResponseEntity.ok()
+            return FileResponses.ok(reportFile)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + reportFile.getFileName() + "\"")
                     .contentType(MediaType.parseMediaType(reportFile.getContentType()))
-                    .contentLength(fileContent.length)
                     .body(resource);
 
         } catch (Exception e) {
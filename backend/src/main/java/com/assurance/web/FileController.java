@@ -1,9 +1,13 @@
 package com.assurance.web;
 
 import com.assurance.domain.CaseAttachment;
+import com.assurance.domain.CaseAttachmentSummary;
+import com.assurance.domain.FileSummary;
 import com.assurance.domain.ReportFile;
+import com.assurance.domain.ReportFileSummary;
 import com.assurance.service.FileService;
-import org.springframework.core.io.ByteArrayResource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -41,7 +45,7 @@ public class FileController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Fichier téléchargé avec succès");
-            response.put("file", createFileResponse(uploadedFile));
+            response.put("file", createFileResponse(uploadedFile, reportId));
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -70,7 +74,7 @@ public class FileController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Pièce jointe téléchargée avec succès");
-            response.put("file", createAttachmentResponse(uploadedFile));
+            response.put("file", createAttachmentResponse(uploadedFile, caseId));
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -89,23 +93,20 @@ public class FileController {
     // ===== TÉLÉCHARGEMENT DE FICHIERS =====
 
     @GetMapping("/reports/{reportId}/files/{fileId}/download")
-    public ResponseEntity<ByteArrayResource> downloadReportFile(
+    public ResponseEntity<Resource> downloadReportFile(
             @PathVariable("reportId") Long reportId,
             @PathVariable("fileId") Long fileId) {
         
         try {
-            byte[] fileContent = fileService.downloadReportFile(fileId);
-            ReportFile reportFile = fileService.getReportFiles(reportId).stream()
-                    .filter(f -> f.getId().equals(fileId))
-                    .findFirst()
+            ReportFileSummary reportFile = fileService.findReportFile(reportId, fileId)
                     .orElseThrow(() -> new IllegalArgumentException("Fichier introuvable"));
             
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            // Le contenu est lu et déchiffré au moment de l'écriture de la réponse
+            Resource resource = fileService.reportFileResource(reportFile);
             
-            return ResponseEntity.ok()
+            return FileResponses.ok(reportFile)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + reportFile.getFileName() + "\"")
                     .contentType(MediaType.parseMediaType(reportFile.getContentType()))
-                    .contentLength(fileContent.length)
                     .body(resource);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
@@ -113,40 +114,70 @@ public class FileController {
     }
 
     @GetMapping("/cases/{caseId}/attachments/{attachmentId}/download")
-    public ResponseEntity<ByteArrayResource> downloadCaseAttachment(
+    public ResponseEntity<Resource> downloadCaseAttachment(
             @PathVariable("caseId") Long caseId,
             @PathVariable("attachmentId") Long attachmentId) {
         
         try {
-            byte[] fileContent = fileService.downloadCaseAttachment(attachmentId);
-            CaseAttachment attachment = fileService.getCaseAttachments(caseId).stream()
-                    .filter(a -> a.getId().equals(attachmentId))
-                    .findFirst()
+            CaseAttachmentSummary attachment = fileService.findCaseAttachment(caseId, attachmentId)
                     .orElseThrow(() -> new IllegalArgumentException("Pièce jointe introuvable"));
             
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            Resource resource = fileService.caseAttachmentResource(attachment);
             
-            return ResponseEntity.ok()
+            return FileResponses.ok(attachment)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getFileName() + "\"")
                     .contentType(MediaType.parseMediaType(attachment.getContentType()))
-                    .contentLength(fileContent.length)
                     .body(resource);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // ===== ARCHIVES ZIP =====
+
+    @GetMapping("/reports/{reportId}/archive")
+    public void downloadReportArchive(@PathVariable("reportId") Long reportId, HttpServletResponse response) throws IOException {
+        List<ReportFileSummary> files = fileService.getReportFiles(reportId);
+        if (files.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        prepareArchiveResponse(response, "rapport-" + reportId + ".zip");
+        fileService.writeReportArchive(files, response.getOutputStream());
+    }
+
+    @GetMapping("/cases/{caseId}/archive")
+    public void downloadCaseArchive(@PathVariable("caseId") Long caseId, HttpServletResponse response) throws IOException {
+        List<CaseAttachmentSummary> attachments = fileService.getCaseAttachments(caseId);
+        if (attachments.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        prepareArchiveResponse(response, "dossier-" + caseId + ".zip");
+        fileService.writeCaseArchive(attachments, response.getOutputStream());
+    }
+
+    /**
+     * L'archive est écrite directement dans la réponse (sans Content-Length, donc en chunked),
+     * de façon synchrone: pas de délai d'expiration des requêtes asynchrones pour les grosses archives.
+     */
+    private void prepareArchiveResponse(HttpServletResponse response, String fileName) {
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+    }
+
     // ===== LISTAGE DES FICHIERS =====
 
     @GetMapping("/reports/{reportId}/files")
     public ResponseEntity<Map<String, Object>> getReportFiles(@PathVariable("reportId") Long reportId) {
         try {
-            List<ReportFile> files = fileService.getReportFiles(reportId);
+            List<ReportFileSummary> files = fileService.getReportFiles(reportId);
             long fileCount = fileService.getReportFileCount(reportId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("files", files.stream().map(this::createFileResponse).toList());
+            response.put("files", files.stream().map(f -> createFileResponse(f, f.getReportId())).toList());
             response.put("totalCount", fileCount);
             
             return ResponseEntity.ok(response);
@@ -161,12 +192,12 @@ public class FileController {
     @GetMapping("/cases/{caseId}/attachments")
     public ResponseEntity<Map<String, Object>> getCaseAttachments(@PathVariable("caseId") Long caseId) {
         try {
-            List<CaseAttachment> attachments = fileService.getCaseAttachments(caseId);
+            List<CaseAttachmentSummary> attachments = fileService.getCaseAttachments(caseId);
             long attachmentCount = fileService.getCaseAttachmentCount(caseId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("attachments", attachments.stream().map(this::createAttachmentResponse).toList());
+            response.put("attachments", attachments.stream().map(a -> createAttachmentResponse(a, a.getCaseId())).toList());
             response.put("totalCount", attachmentCount);
             
             return ResponseEntity.ok(response);
@@ -186,11 +217,11 @@ public class FileController {
             @RequestParam("fileName") String fileName) {
         
         try {
-            List<ReportFile> files = fileService.searchReportFiles(reportId, fileName);
+            List<ReportFileSummary> files = fileService.searchReportFiles(reportId, fileName);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("files", files.stream().map(this::createFileResponse).toList());
+            response.put("files", files.stream().map(f -> createFileResponse(f, f.getReportId())).toList());
             response.put("searchTerm", fileName);
             
             return ResponseEntity.ok(response);
@@ -208,11 +239,11 @@ public class FileController {
             @RequestParam("fileName") String fileName) {
         
         try {
-            List<CaseAttachment> attachments = fileService.searchCaseAttachments(caseId, fileName);
+            List<CaseAttachmentSummary> attachments = fileService.searchCaseAttachments(caseId, fileName);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("attachments", attachments.stream().map(this::createAttachmentResponse).toList());
+            response.put("attachments", attachments.stream().map(a -> createAttachmentResponse(a, a.getCaseId())).toList());
             response.put("searchTerm", fileName);
             
             return ResponseEntity.ok(response);
@@ -232,11 +263,11 @@ public class FileController {
             @PathVariable("fileType") String fileType) {
         
         try {
-            List<ReportFile> files = fileService.getReportFilesByType(reportId, fileType);
+            List<ReportFileSummary> files = fileService.getReportFilesByType(reportId, fileType);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("files", files.stream().map(this::createFileResponse).toList());
+            response.put("files", files.stream().map(f -> createFileResponse(f, f.getReportId())).toList());
             response.put("fileType", fileType);
             
             return ResponseEntity.ok(response);
@@ -254,11 +285,11 @@ public class FileController {
             @PathVariable("category") String category) {
         
         try {
-            List<CaseAttachment> attachments = fileService.getCaseAttachmentsByCategory(caseId, category);
+            List<CaseAttachmentSummary> attachments = fileService.getCaseAttachmentsByCategory(caseId, category);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("attachments", attachments.stream().map(this::createAttachmentResponse).toList());
+            response.put("attachments", attachments.stream().map(a -> createAttachmentResponse(a, a.getCaseId())).toList());
             response.put("category", category);
             
             return ResponseEntity.ok(response);
@@ -316,7 +347,7 @@ public class FileController {
 
     // ===== MÉTHODES UTILITAIRES =====
 
-    private Map<String, Object> createFileResponse(ReportFile file) {
+    private Map<String, Object> createFileResponse(FileSummary file, Long reportId) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", file.getId());
         response.put("fileName", file.getFileName());
@@ -330,11 +361,11 @@ public class FileController {
         response.put("isPublic", file.getIsPublic());
         response.put("createdAt", file.getCreatedAt());
         response.put("updatedAt", file.getUpdatedAt());
-        response.put("reportId", file.getReport().getId());
+        response.put("reportId", reportId);
         return response;
     }
 
-    private Map<String, Object> createAttachmentResponse(CaseAttachment attachment) {
+    private Map<String, Object> createAttachmentResponse(FileSummary attachment, Long caseId) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", attachment.getId());
         response.put("fileName", attachment.getFileName());
@@ -348,7 +379,7 @@ public class FileController {
         response.put("isPublic", attachment.getIsPublic());
         response.put("createdAt", attachment.getCreatedAt());
         response.put("updatedAt", attachment.getUpdatedAt());
-        response.put("caseId", attachment.getInsuranceCase().getId());
+        response.put("caseId", caseId);
         return response;
     }
 }
@@ -0,0 +1,43 @@
+package com.assurance.web;
+
+import com.assurance.domain.FileSummary;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+
+/**
+ * En-têtes de validation et de cache communs aux réponses qui diffusent le contenu d'un fichier.
+ *
+ * Avec un ETag et un Last-Modified posés sur la ResponseEntity, Spring MVC répond lui-même 304
+ * aux requêtes conditionnelles (If-None-Match / If-Modified-Since) sans ouvrir le contenu, et
+ * transforme les requêtes Range en 206 Partial Content pour un corps de type Resource. Accept-Ranges
+ * est posé par Spring selon le corps: absent pour une InputStreamResource (format chiffré historique,
+ * servi en entier, voir FileService).
+ */
+final class FileResponses {
+
+    private FileResponses() {}
+
+    static ResponseEntity.BodyBuilder ok(FileSummary file) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .eTag(etag(file))
+            // Fichiers protégés: cache navigateur uniquement, revalidé à chaque utilisation (304 si inchangé)
+            .cacheControl(CacheControl.noCache().cachePrivate());
+        Instant lastModified = file.getUpdatedAt() != null ? file.getUpdatedAt() : file.getCreatedAt();
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    static String etag(FileSummary file) {
+        if (file.getContentHash() != null) {
+            // ETag fort: identique tant que le contenu en clair est identique
+            return "\"" + file.getContentHash() + "\"";
+        }
+        // Fichiers antérieurs au hash de contenu: ETag faible dérivé de l'id et de la date de mise à jour
+        Instant version = file.getUpdatedAt() != null ? file.getUpdatedAt() : file.getCreatedAt();
+        return "W/\"" + file.getId() + "-" + (version != null ? version.toEpochMilli() : 0) + "\"";
+    }
+}
@@ -1,10 +1,14 @@
 package com.assurance.web;
 
 import com.assurance.domain.Report;
-import com.assurance.domain.ReportFile;
+import com.assurance.domain.ReportFileSummary;
+import com.assurance.domain.ReportSummary;
 import com.assurance.service.ReportService;
 import com.assurance.service.FileService;
+import com.assurance.web.dto.KeysetPage;
 import com.assurance.web.dto.ReportDto;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,6 +16,8 @@ import org.springframework.http.ResponseEntity;
 import com.assurance.repo.InsuranceCaseRepository;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +35,10 @@ public class ReportController {
         this.insuranceCaseRepository = insuranceCaseRepository; 
     }
 
+    /**
+     * Liste complète (forme historique, utilisée par le frontend actuel).
+     * Préférer la liste paginée ci-dessous (paramètre limit).
+     */
     @GetMapping
     public List<ReportDto> list() {
         return reportService.list().stream().map(r -> {
@@ -43,6 +53,52 @@ public class ReportController {
         }).toList();
     }
 
+    /**
+     * Liste paginée par curseur: résumés sans les colonnes JSON, du plus récent au plus ancien.
+     * Filtres optionnels: status, createdBy, caseId, période [from, to] (dates incluses).
+     * La page suivante s'obtient en renvoyant nextCursor dans le paramètre cursor.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> listPage(@RequestParam int limit,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) String status,
+                                      @RequestParam(required = false) String createdBy,
+                                      @RequestParam(required = false) String caseId,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ZoneId zone = ZoneId.systemDefault();
+            KeysetPage<ReportSummary> page = reportService.listSummaries(parseStatus(status), createdBy, caseId,
+                from != null ? from.atStartOfDay(zone).toInstant() : null,
+                to != null ? to.plusDays(1).atStartOfDay(zone).toInstant() : null,
+                cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static Report.Status parseStatus(String status) {
+        if (status == null || status.isBlank()) return null;
+        try {
+            return Report.Status.valueOf(status.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Statut inconnu: " + status);
+        }
+    }
+
+    /**
+     * Détail d'un rapport, avec les bénéficiaires et assurés
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ReportDto> get(@PathVariable("id") Long id) {
+        Report report = reportService.findById(id);
+        if (report == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ReportDto.from(report));
+    }
+
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Report payload, @RequestParam(defaultValue = "false") boolean hasFile, @RequestParam String createdBy) {
         try {
@@ -132,28 +188,16 @@ public class ReportController {
 
     // Endpoint pour prévisualiser un fichier spécifique d'un rapport
     @GetMapping("/{reportId}/files/{fileId}/preview")
-    public ResponseEntity<byte[]> previewFile(@PathVariable("reportId") Long reportId, @PathVariable("fileId") Long fileId) {
+    public ResponseEntity<Resource> previewFile(@PathVariable("reportId") Long reportId, @PathVariable("fileId") Long fileId) {
         try {
-            // Vérifier que le rapport existe
-            Report report = reportService.findById(reportId);
-            if (report == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Récupérer le fichier via le FileService
-            byte[] fileContent = fileService.downloadReportFile(fileId);
-            
-            // Récupérer les métadonnées du fichier pour définir le Content-Type
-            var reportFiles = fileService.getReportFiles(reportId);
-            var targetFile = reportFiles.stream()
-                .filter(f -> f.getId().equals(fileId))
-                .findFirst();
+            // Métadonnées du fichier (une seule requête, le rattachement au rapport est vérifié au passage)
+            var targetFile = fileService.findReportFile(reportId, fileId);
             
             if (targetFile.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
             
-            ReportFile file = targetFile.get();
+            ReportFileSummary file = targetFile.get();
             
             // Définir les headers appropriés
             HttpHeaders headers = new HttpHeaders();
@@ -179,9 +223,9 @@ public class ReportController {
             
             // Pour la prévisualisation, on affiche inline plutôt qu'en téléchargement
             headers.set("Content-Disposition", "inline; filename=\"" + file.getFileName() + "\"");
-            headers.setContentLength(fileContent.length);
             
-            return new ResponseEntity<>(fileContent, headers, HttpStatus.OK);
+            // Le contenu est diffusé en flux au moment de l'écriture de la réponse
+            return FileResponses.ok(file).headers(headers).body(fileService.reportFileResource(file));
             
         } catch (Exception e) {
             System.err.println("Erreur lors de la prévisualisation du fichier: " + e.getMessage());
@@ -6,12 +6,15 @@ import com.assurance.domain.AuditEvent;
 import com.assurance.repo.ReportRepository;
 import com.assurance.repo.InsuranceCaseRepository;
 import com.assurance.repo.AuditEventRepository;
+import com.assurance.service.StatsRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -23,13 +26,20 @@ public class ReportStatsController {
     private final ReportRepository reportRepository;
     private final InsuranceCaseRepository caseRepository;
     private final AuditEventRepository auditEventRepository;
+    private final StatsRollupService statsRollupService;
+    
+    private static final int MAX_TIMESERIES_DAYS = 366;
+    // Fenêtres successives (jours) de recherche des demandes récentes: la plus courte ne lit que les dernières partitions
+    private static final int[] RECENT_REQUEST_WINDOWS_DAYS = {30, 365};
     
     public ReportStatsController(ReportRepository reportRepository, 
                                 InsuranceCaseRepository caseRepository,
-                                AuditEventRepository auditEventRepository) {
+                                AuditEventRepository auditEventRepository,
+                                StatsRollupService statsRollupService) {
         this.reportRepository = reportRepository;
         this.caseRepository = caseRepository;
         this.auditEventRepository = auditEventRepository;
+        this.statsRollupService = statsRollupService;
     }
     
     @GetMapping
@@ -72,14 +82,75 @@ public class ReportStatsController {
         }
     }
     
+    /**
+     * Série temporelle quotidienne sur [from, to] (dates incluses, 30 derniers jours par défaut):
+     * rapports créés et événements d'audit par type. Les jours sans activité sont présents avec des zéros.
+     */
+    @GetMapping("/timeseries")
+    public ResponseEntity<Map<String, Object>> getTimeSeries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= MAX_TIMESERIES_DAYS) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Période invalide: from doit précéder to, sur " + MAX_TIMESERIES_DAYS + " jours au plus");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        try {
+            ZoneId zone = ZoneId.systemDefault();
+            Instant fromInstant = start.atStartOfDay(zone).toInstant();
+            Instant toInstant = end.plusDays(1).atStartOfDay(zone).toInstant();
+            
+            // Un point par jour, initialisé à zéro
+            Map<LocalDate, Map<String, Object>> points = new LinkedHashMap<>();
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("date", day.toString());
+                point.put("reportsCreated", 0L);
+                Map<String, Long> events = new LinkedHashMap<>();
+                for (AuditEvent.EventType type : AuditEvent.EventType.values()) {
+                    events.put(type.name(), 0L);
+                }
+                point.put("events", events);
+                points.put(day, point);
+            }
+            
+            for (Object[] row : reportRepository.countCreatedByDay(fromInstant, toInstant)) {
+                Map<String, Object> point = points.get(toLocalDate(row[0]));
+                if (point != null) {
+                    point.put("reportsCreated", ((Number) row[1]).longValue());
+                }
+            }
+            for (Object[] row : auditEventRepository.countByTypeAndDay(fromInstant, toInstant)) {
+                Map<String, Object> point = points.get(toLocalDate(row[0]));
+                if (point != null) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Long> events = (Map<String, Long>) point.get("events");
+                    events.put(String.valueOf(row[1]), ((Number) row[2]).longValue());
+                }
+            }
+            
+            Map<String, Object> series = new HashMap<>();
+            series.put("from", start.toString());
+            series.put("to", end.toString());
+            series.put("points", new ArrayList<>(points.values()));
+            return ResponseEntity.ok(series);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Erreur lors de la récupération de la série temporelle: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+    
     private long countModifiedReports() {
         // Compter les rapports qui ont été modifiés (créés dans les 30 derniers jours)
         LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
         Instant thirtyDaysAgoInstant = thirtyDaysAgo.atStartOfDay(ZoneId.systemDefault()).toInstant();
         
-        return reportRepository.findAll().stream()
-                .filter(report -> report.getCreatedAt().isAfter(thirtyDaysAgoInstant))
-                .count();
+        return reportRepository.countByCreatedAtAfter(thirtyDaysAgoInstant);
     }
     
     private long countDeletedReports() {
@@ -87,11 +158,10 @@ public class ReportStatsController {
         return 0;
     }
     
+    // Totaux lus dans les agrégats (stats_counters): ils incluent les événements d'audit archivés
     private long countAccessRequests() {
         try {
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.ACCESS_REQUEST_CREATED)
-                    .count();
+            return accessRequestsByCompany().values().stream().mapToLong(Long::longValue).sum();
         } catch (Exception e) {
             // Si pas d'événements d'audit, retourner 0
             return 0;
@@ -113,13 +183,7 @@ public class ReportStatsController {
     
     private List<Map<String, Object>> getCompaniesWithRequests() {
         try {
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.ACCESS_REQUEST_CREATED)
-                    .collect(Collectors.groupingBy(
-                        event -> extractCompanyFromActor(event.getActor()),
-                        Collectors.counting()
-                    ))
-                    .entrySet().stream()
+            return accessRequestsByCompany().entrySet().stream()
                     .map(entry -> {
                         Map<String, Object> company = new HashMap<>();
                         company.put("company", entry.getKey());
@@ -134,6 +198,10 @@ public class ReportStatsController {
         }
     }
     
+    private Map<String, Long> accessRequestsByCompany() {
+        return statsRollupService.countsByCompany(StatsRollupService.auditMetric(AuditEvent.EventType.ACCESS_REQUEST_CREATED), null);
+    }
+    
     private List<Map<String, Object>> getRecentReports() {
         return reportRepository.findTop10ByOrderByCreatedAtDesc().stream()
                 .limit(5)
@@ -151,10 +219,13 @@ public class ReportStatsController {
     
     private List<Map<String, Object>> getRecentRequests() {
         try {
-            return auditEventRepository.findAll().stream()
-                    .filter(event -> event.getType() == AuditEvent.EventType.ACCESS_REQUEST_CREATED)
-                    .sorted(Comparator.comparing(AuditEvent::getAtISO).reversed())
-                    .limit(5)
+            List<AuditEvent> events = List.of();
+            for (int days : RECENT_REQUEST_WINDOWS_DAYS) {
+                events = auditEventRepository.findTop5ByTypeAndAtISOGreaterThanEqualOrderByAtISODesc(
+                        AuditEvent.EventType.ACCESS_REQUEST_CREATED, Instant.now().minus(days, ChronoUnit.DAYS));
+                if (events.size() >= 5) break;
+            }
+            return events.stream()
                     .map(event -> {
                         Map<String, Object> request = new HashMap<>();
                         request.put("id", event.getId());
@@ -171,6 +242,13 @@ public class ReportStatsController {
         }
     }
     
+    // Le type JDBC retourné pour CAST(... AS DATE) dépend du pilote
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) return date.toLocalDate();
+        if (value instanceof LocalDate date) return date;
+        return LocalDate.parse(String.valueOf(value).substring(0, 10));
+    }
+    
     private String extractCompanyFromActor(String actor) {
         if (actor == null) return "Inconnu";
         
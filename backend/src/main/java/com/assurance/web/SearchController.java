@@ -0,0 +1,54 @@
+package com.assurance.web;
+
+import com.assurance.domain.SearchDocument;
+import com.assurance.service.GlobalSearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+// CORS géré par WebConfig.java
+public class SearchController {
+    private final GlobalSearchService globalSearchService;
+
+    public SearchController(GlobalSearchService globalSearchService) {
+        this.globalSearchService = globalSearchService;
+    }
+
+    /**
+     * Recherche globale: rapports, dossiers, fichiers de rapports et pièces jointes de dossiers contenant
+     * tous les mots de q (sans accents ni casse, préfixe à partir de 3 caractères), classés par pertinence;
+     * à défaut, ceux contenant un mot proche de chacun (approximate: true dans la réponse).
+     * Filtre optionnel types (ex. types=REPORT,CASE). Pagination par numéro de page (page, size).
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(required = false) List<String> types,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(globalSearchService.search(q, parseTypes(types), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static Set<SearchDocument.DocType> parseTypes(List<String> types) {
+        Set<SearchDocument.DocType> parsed = EnumSet.noneOf(SearchDocument.DocType.class);
+        if (types == null) return parsed;
+        for (String type : types) {
+            if (type == null || type.isBlank()) continue;
+            try {
+                parsed.add(SearchDocument.DocType.valueOf(type.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Type inconnu: " + type);
+            }
+        }
+        return parsed;
+    }
+}
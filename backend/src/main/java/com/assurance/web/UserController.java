@@ -4,6 +4,8 @@ import com.assurance.domain.User;
 import com.assurance.dto.UserDto;
 import com.assurance.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/users")
@@ -26,11 +29,19 @@ public class UserController {
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
         String normalizedCompany = request.getInsuranceCompany() == null ? "" : request.getInsuranceCompany().trim();
-        Optional<User> userOpt = userService.authenticateUser(
-            request.getUsername(), 
-            normalizedCompany, 
-            request.getPassword()
-        );
+        Optional<User> userOpt;
+        try {
+            userOpt = userService.authenticateUser(
+                request.getUsername(), 
+                normalizedCompany, 
+                request.getPassword()
+            );
+        } catch (RejectedExecutionException e) {
+            // Pool de vérification des mots de passe saturé: refus immédiat, le client peut réessayer
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+        }
         
         if (userOpt.isPresent()) {
             User user = userOpt.get();
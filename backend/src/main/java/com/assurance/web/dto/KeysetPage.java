@@ -0,0 +1,57 @@
+package com.assurance.web.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Page d'une liste paginée par clé (createdAt, id), du plus récent au plus ancien.
+ *
+ * nextCursor est opaque pour le client: il le renvoie tel quel (paramètre cursor) pour obtenir la page
+ * suivante, null quand il n'y en a plus. Contrairement à un offset, le coût d'une page ne dépend pas
+ * de sa position et les insertions concurrentes ne décalent pas les pages.
+ */
+public class KeysetPage<T> {
+    public List<T> items;
+    public String nextCursor;
+    public boolean hasMore;
+
+    /**
+     * Construit la page à partir de limit + 1 lignes lues: la ligne supplémentaire indique qu'il existe une suite.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, java.util.function.Function<T, Instant> createdAt,
+                                       java.util.function.Function<T, Long> id) {
+        KeysetPage<T> page = new KeysetPage<>();
+        page.hasMore = rows.size() > limit;
+        page.items = page.hasMore ? rows.subList(0, limit) : rows;
+        if (page.hasMore) {
+            T last = page.items.get(limit - 1);
+            page.nextCursor = encodeCursor(createdAt.apply(last), id.apply(last));
+        }
+        return page;
+    }
+
+    public record Cursor(Instant createdAt, Long id) {}
+
+    public static String encodeCursor(Instant createdAt, Long id) {
+        String raw = createdAt.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur; null si absent. IllegalArgumentException si le curseur est invalide.
+     */
+    public static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide");
+        }
+    }
+}
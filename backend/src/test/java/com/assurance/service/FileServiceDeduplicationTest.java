@@ -0,0 +1,171 @@
+package com.assurance.service;
+
+import com.assurance.domain.CaseAttachment;
+import com.assurance.domain.InsuranceCase;
+import com.assurance.repo.InsuranceCaseRepository;
+import com.assurance.service.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Déduplication du contenu des fichiers (file_contents, compteur de références, blob partagé).
+ *
+ * Requêtes propres à PostgreSQL (verrous consultatifs, ON CONFLICT): le test tourne sur une base
+ * PostgreSQL dédiée, désigné par TEST_DATABASE_URL (ex. jdbc:postgresql://localhost:5432/assurance_test,
+ * identifiants TEST_DATABASE_USER / TEST_DATABASE_PASSWORD), et est ignoré sans elle.
+ * Contenu non chiffré (APP_FILE_ENCRYPT absent): la clé du blob est l'empreinte du clair.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class FileServiceDeduplicationTest {
+
+    @TempDir
+    static Path blobRoot;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_DATABASE_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", "postgres"));
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("app.blob.store", () -> "local");
+        registry.add("app.blob.local.root", blobRoot::toString);
+    }
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private InsuranceCaseRepository insuranceCaseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private final Random random = new Random();
+    private InsuranceCase insuranceCase;
+
+    @BeforeEach
+    void createCase() {
+        InsuranceCase created = new InsuranceCase();
+        created.setReference("T" + UUID.randomUUID().toString().replace("-", "").substring(0, 20));
+        created.setType(InsuranceCase.CaseType.ENQUETE);
+        created.setStatus(InsuranceCase.CaseStatus.SOUS_ENQUETE);
+        created.setCreatedBy("test");
+        insuranceCase = insuranceCaseRepository.save(created);
+    }
+
+    @AfterEach
+    void deleteCase() {
+        fileService.deleteAllCaseAttachments(insuranceCase.getId());
+        insuranceCaseRepository.deleteById(insuranceCase.getId());
+    }
+
+    @Test
+    void identicalUploadsShareOneContent() throws Exception {
+        byte[] plain = randomBytes(3000);
+        CaseAttachment first = upload("devis.pdf", plain);
+        CaseAttachment second = upload("devis-copie.pdf", plain);
+
+        assertNotNull(first.getContentId());
+        assertEquals(first.getContentId(), second.getContentId());
+        assertEquals(List.of(2), refCounts(sha256(plain)));
+        assertTrue(blobStore.exists(sha256(plain)));
+        assertArrayEquals(plain, read(second.getId()));
+    }
+
+    @Test
+    void differentContentsAreNotShared() throws Exception {
+        CaseAttachment first = upload("devis.pdf", randomBytes(3000));
+        CaseAttachment second = upload("facture.pdf", randomBytes(3000));
+
+        assertNotEquals(first.getContentId(), second.getContentId());
+    }
+
+    @Test
+    void deletingOneReferenceKeepsTheBlob() throws Exception {
+        byte[] plain = randomBytes(3000);
+        CaseAttachment first = upload("devis.pdf", plain);
+        CaseAttachment second = upload("devis-copie.pdf", plain);
+
+        fileService.deleteCaseAttachment(first.getId());
+
+        assertEquals(List.of(1), refCounts(sha256(plain)));
+        assertTrue(blobStore.exists(sha256(plain)));
+        assertArrayEquals(plain, read(second.getId()));
+    }
+
+    @Test
+    void deletingTheLastReferenceRemovesContentAndBlob() throws Exception {
+        byte[] plain = randomBytes(3000);
+        CaseAttachment first = upload("devis.pdf", plain);
+        CaseAttachment second = upload("devis-copie.pdf", plain);
+
+        fileService.deleteCaseAttachment(first.getId());
+        fileService.deleteCaseAttachment(second.getId());
+
+        assertEquals(List.of(), refCounts(sha256(plain)));
+        assertFalse(blobStore.exists(sha256(plain)));
+    }
+
+    @Test
+    void uploadAfterLastDeletionStoresTheContentAgain() throws Exception {
+        byte[] plain = randomBytes(3000);
+        fileService.deleteCaseAttachment(upload("devis.pdf", plain).getId());
+
+        CaseAttachment again = upload("devis.pdf", plain);
+
+        assertEquals(List.of(1), refCounts(sha256(plain)));
+        assertTrue(blobStore.exists(sha256(plain)));
+        assertArrayEquals(plain, read(again.getId()));
+    }
+
+    private CaseAttachment upload(String fileName, byte[] plain) throws IOException {
+        return fileService.uploadCaseAttachment(insuranceCase.getId(),
+            new MockMultipartFile("file", fileName, "application/pdf", plain), null, "doc");
+    }
+
+    private byte[] read(Long attachmentId) throws IOException {
+        try (InputStream in = fileService.openCaseAttachmentStream(attachmentId)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private List<Integer> refCounts(String hash) {
+        return jdbcTemplate.queryForList("SELECT ref_count FROM file_contents WHERE content_hash = ?", Integer.class, hash);
+    }
+
+    // Contenu aléatoire: chaque exécution part de contenus absents de la base
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
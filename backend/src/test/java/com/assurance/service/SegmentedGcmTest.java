@@ -0,0 +1,176 @@
+package com.assurance.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedGcmTest {
+    // Petits segments: plusieurs segments par fichier sans gros volumes
+    private static final int SEGMENT = 64;
+    private static final int STORED_SEGMENT = SEGMENT + SegmentedGcm.TAG_LENGTH;
+
+    private final SecretKey key = new SecretKeySpec("0123456789ABCDEF0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII), "AES");
+    private final Random random = new Random(42);
+
+    @Test
+    void roundTrip() throws IOException {
+        for (int size : new int[] {0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 5 * SEGMENT, 5 * SEGMENT + 17}) {
+            byte[] plain = randomBytes(size);
+            byte[] sealed = encrypt(plain, SEGMENT, randomNonce());
+            assertEquals(SegmentedGcm.encryptedLength(size, SEGMENT), sealed.length, "taille chiffrée pour " + size);
+            assertArrayEquals(plain, decrypt(sealed), "clair pour " + size);
+        }
+    }
+
+    @Test
+    void roundTripWithDefaultSegmentSize() throws IOException {
+        byte[] plain = randomBytes(3 * SegmentedGcm.DEFAULT_SEGMENT_SIZE + 1000);
+        byte[] sealed = encrypt(plain, SegmentedGcm.DEFAULT_SEGMENT_SIZE, randomNonce());
+        assertEquals(SegmentedGcm.encryptedLength(plain.length, SegmentedGcm.DEFAULT_SEGMENT_SIZE), sealed.length);
+        assertArrayEquals(plain, decrypt(sealed));
+    }
+
+    @Test
+    void samePrefixWithAnotherSaltUsesAnotherKey() throws IOException {
+        byte[] plain = randomBytes(3 * SEGMENT);
+        byte[] nonce = randomNonce();
+        byte[] otherSalt = nonce.clone();
+        otherSalt[0] ^= 1;
+        byte[] first = encrypt(plain, SEGMENT, nonce);
+        byte[] second = encrypt(plain, SEGMENT, otherSalt);
+        // Même préfixe de nonce et même clair: seule la sous-clé dérivée du sel distingue les deux chiffrés
+        assertFalse(Arrays.equals(
+            Arrays.copyOfRange(first, SegmentedGcm.HEADER_LENGTH, SegmentedGcm.HEADER_LENGTH + SEGMENT),
+            Arrays.copyOfRange(second, SegmentedGcm.HEADER_LENGTH, SegmentedGcm.HEADER_LENGTH + SEGMENT)));
+        assertArrayEquals(plain, decrypt(second));
+    }
+
+    @Test
+    void tamperedSegmentIsRejected() throws IOException {
+        byte[] sealed = encrypt(randomBytes(4 * SEGMENT), SEGMENT, randomNonce());
+        sealed[SegmentedGcm.HEADER_LENGTH + 2 * STORED_SEGMENT + 10] ^= 1;
+        assertThrows(IOException.class, () -> decrypt(sealed));
+    }
+
+    @Test
+    void tamperedHeaderIsRejected() throws IOException {
+        byte[] sealed = encrypt(randomBytes(2 * SEGMENT), SEGMENT, randomNonce());
+        // Sel (sous-clé différente), puis préfixe de nonce
+        for (int position : new int[] {9, SegmentedGcm.HEADER_LENGTH - 1}) {
+            byte[] tampered = sealed.clone();
+            tampered[position] ^= 1;
+            assertThrows(IOException.class, () -> decrypt(tampered), "octet " + position);
+        }
+    }
+
+    @Test
+    void unknownVersionIsRejected() throws IOException {
+        byte[] sealed = encrypt(randomBytes(2 * SEGMENT), SEGMENT, randomNonce());
+        sealed[4] = (byte) (SegmentedGcm.VERSION + 1);
+        assertThrows(IOException.class, () -> decrypt(sealed));
+    }
+
+    @Test
+    void truncationIsRejected() throws IOException {
+        byte[] sealed = encrypt(randomBytes(4 * SEGMENT + 10), SEGMENT, randomNonce());
+        int[] lengths = {
+            5,                                                   // en-tête incomplet
+            SegmentedGcm.HEADER_LENGTH,                          // en-tête seul
+            SegmentedGcm.HEADER_LENGTH + 2 * STORED_SEGMENT,     // frontière de segment
+            SegmentedGcm.HEADER_LENGTH + 2 * STORED_SEGMENT + 20 // milieu de segment
+        };
+        for (int length : lengths) {
+            byte[] truncated = Arrays.copyOf(sealed, length);
+            assertThrows(IOException.class, () -> decrypt(truncated), "tronqué à " + length);
+        }
+        assertThrows(IOException.class, () -> decrypt(Arrays.copyOf(sealed, sealed.length - 1)));
+    }
+
+    @Test
+    void reorderedSegmentsAreRejected() throws IOException {
+        byte[] sealed = encrypt(randomBytes(4 * SEGMENT), SEGMENT, randomNonce());
+        int first = SegmentedGcm.HEADER_LENGTH + STORED_SEGMENT;
+        int second = first + STORED_SEGMENT;
+        byte[] swapped = sealed.clone();
+        System.arraycopy(sealed, second, swapped, first, STORED_SEGMENT);
+        System.arraycopy(sealed, first, swapped, second, STORED_SEGMENT);
+        assertThrows(IOException.class, () -> decrypt(swapped));
+    }
+
+    @Test
+    void skipPositionsOnTargetSegment() throws IOException {
+        byte[] plain = randomBytes(6 * SEGMENT + 30);
+        byte[] sealed = encrypt(plain, SEGMENT, randomNonce());
+        for (int offset : new int[] {0, 1, SEGMENT - 1, SEGMENT, 3 * SEGMENT + 5, 6 * SEGMENT, plain.length - 1, plain.length}) {
+            try (InputStream in = decryptingStream(sealed)) {
+                assertEquals(offset, in.skip(offset), "saut de " + offset);
+                assertArrayEquals(Arrays.copyOfRange(plain, offset, plain.length), in.readAllBytes(), "lecture après " + offset);
+            }
+        }
+        // Sauts successifs, dans le segment en mémoire puis au-delà
+        try (InputStream in = decryptingStream(sealed)) {
+            assertEquals(plain[0], (byte) in.read());
+            assertEquals(10, in.skip(10));
+            assertEquals(plain[11], (byte) in.read());
+            assertEquals(2 * SEGMENT, in.skip(2 * SEGMENT));
+            assertEquals(plain[12 + 2 * SEGMENT], (byte) in.read());
+        }
+    }
+
+    @Test
+    void skippedSegmentsAreNotDecrypted() throws IOException {
+        byte[] plain = randomBytes(5 * SEGMENT);
+        byte[] sealed = encrypt(plain, SEGMENT, randomNonce());
+        sealed[SegmentedGcm.HEADER_LENGTH + STORED_SEGMENT + 3] ^= 1;
+        try (InputStream in = decryptingStream(sealed)) {
+            assertEquals(3 * SEGMENT, in.skip(3 * SEGMENT));
+            assertArrayEquals(Arrays.copyOfRange(plain, 3 * SEGMENT, plain.length), in.readAllBytes());
+        }
+        assertThrows(IOException.class, () -> decrypt(sealed));
+    }
+
+    private byte[] encrypt(byte[] plain, int segmentSize, byte[] fileNonce) throws IOException {
+        try (InputStream in = new SegmentedGcm.EncryptingInputStream(new ByteArrayInputStream(plain), key, gcm(), fileNonce, segmentSize)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private byte[] decrypt(byte[] sealed) throws IOException {
+        try (InputStream in = decryptingStream(sealed)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private InputStream decryptingStream(byte[] sealed) {
+        return new SegmentedGcm.DecryptingInputStream(new ByteArrayInputStream(sealed), key, gcm());
+    }
+
+    private byte[] randomNonce() {
+        return randomBytes(SegmentedGcm.FILE_NONCE_LENGTH);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Cipher gcm() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- Optimisation de la lecture par tranches des fichiers stockés en BYTEA
+-- Le backend lit désormais le contenu des fichiers avec substring(cipher_text FROM x FOR y).
+-- Avec le stockage EXTENDED (par défaut), une valeur compressée doit être entièrement
+-- décompressée à chaque tranche. Le stockage EXTERNAL (TOAST sans compression) permet à
+-- PostgreSQL de ne lire que les blocs TOAST nécessaires.
+
+-- 1. Passer les colonnes de contenu en stockage EXTERNAL (s'applique aux nouvelles valeurs)
+ALTER TABLE report_files ALTER COLUMN cipher_text SET STORAGE EXTERNAL;
+ALTER TABLE case_attachments ALTER COLUMN cipher_text SET STORAGE EXTERNAL;
+
+-- 2. Vérifier le mode de stockage (attstorage = 'e' pour EXTERNAL)
+SELECT attrelid::regclass AS table_name, attname, attstorage
+FROM pg_attribute
+WHERE attrelid IN ('report_files'::regclass, 'case_attachments'::regclass)
+AND attname = 'cipher_text';
+
+-- Déduplication des contenus (table file_contents, créée par Hibernate)
+-- Les nouveaux fichiers référencent un contenu partagé via content_id; les fichiers existants
+-- conservent leur contenu dans leur propre ligne.
+
+-- 3. Même mode de stockage pour le contenu partagé
+ALTER TABLE file_contents ALTER COLUMN cipher_text SET STORAGE EXTERNAL;
+
+-- 4. Clés étrangères vers le contenu partagé (non générées par Hibernate: content_id est un simple identifiant)
+ALTER TABLE report_files ADD CONSTRAINT fk_report_files_content FOREIGN KEY (content_id) REFERENCES file_contents(id);
+ALTER TABLE case_attachments ADD CONSTRAINT fk_case_attachments_content FOREIGN KEY (content_id) REFERENCES file_contents(id);
+
+-- 5. Contrôle des compteurs de références (aucune ligne attendue)
+SELECT c.id, c.content_hash, c.ref_count,
+       (SELECT COUNT(*) FROM report_files rf WHERE rf.content_id = c.id)
+     + (SELECT COUNT(*) FROM case_attachments ca WHERE ca.content_id = c.id) AS references_reelles
+FROM file_contents c
+WHERE c.ref_count <> (SELECT COUNT(*) FROM report_files rf WHERE rf.content_id = c.id)
+                   + (SELECT COUNT(*) FROM case_attachments ca WHERE ca.content_id = c.id);
+
+-- 6. Octets économisés par la déduplication (également exposé par GET /api/admin/storage/deduplication)
+SELECT COUNT(*) AS contenus, SUM(ref_count) AS nb_references, SUM(stored_bytes * (ref_count - 1)) AS octets_economises
+FROM file_contents;
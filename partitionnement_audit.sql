@@ -0,0 +1,101 @@
+-- Partitionnement mensuel de la table audit_events (PostgreSQL)
+-- La table est partitionnée par mois sur atiso (date de l'événement). Le backend crée chaque jour les partitions
+-- du mois courant et des 3 mois suivants, et, si app.audit.retention.months > 0, archive puis supprime les mois
+-- plus anciens (un fichier audit_events_AAAA-MM.csv.gz par mois dans app.audit.retention.archive-dir).
+-- Les requêtes bornées sur atiso ne lisent que les partitions concernées.
+-- Conversion à exécuter une fois, backend arrêté; les lignes existantes sont recopiées.
+
+BEGIN;
+
+-- Bornes des partitions et calculs de mois en UTC, quel que soit le fuseau de la session
+SET LOCAL TIME ZONE 'UTC';
+
+-- 1. Ancienne table mise de côté
+LOCK TABLE audit_events IN ACCESS EXCLUSIVE MODE;
+ALTER TABLE audit_events RENAME TO audit_events_old;
+ALTER INDEX IF EXISTS idx_audit_events_type_at RENAME TO idx_audit_events_old_type_at;
+ALTER INDEX IF EXISTS idx_audit_events_type_at_id RENAME TO idx_audit_events_old_type_at_id;
+ALTER INDEX IF EXISTS idx_audit_events_actor_at_id RENAME TO idx_audit_events_old_actor_at_id;
+ALTER INDEX IF EXISTS idx_audit_events_at_id RENAME TO idx_audit_events_old_at_id;
+
+-- 2. Table partitionnée (la clé primaire doit contenir la clé de partitionnement)
+CREATE TABLE audit_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    type VARCHAR(255) NOT NULL,
+    message VARCHAR(512) NOT NULL,
+    actor VARCHAR(128) NOT NULL,
+    atiso TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id, atiso),
+    CONSTRAINT audit_events_type_check CHECK (type IN (
+        'ACCESS_REQUEST_CREATED',
+        'ACCESS_REQUEST_APPROVED',
+        'ACCESS_REQUEST_REJECTED',
+        'REPORT_CREATED',
+        'REPORT_DOWNLOADED',
+        'CASE_CREATED'
+    ))
+) PARTITION BY RANGE (atiso);
+
+CREATE INDEX idx_audit_events_type_at_id ON audit_events (type, atiso DESC, id DESC);
+CREATE INDEX idx_audit_events_actor_at_id ON audit_events (actor, atiso DESC, id DESC);
+CREATE INDEX idx_audit_events_at_id ON audit_events (atiso DESC, id DESC);
+
+-- 3. Partitions: une par mois depuis le plus ancien événement jusqu'à 3 mois après le mois courant (bornes en UTC),
+--    plus une partition par défaut qui doit rester vide
+DO $$
+DECLARE
+    mois DATE;
+BEGIN
+    FOR mois IN
+        SELECT generate_series(
+            date_trunc('month', (COALESCE((SELECT MIN(atiso) FROM audit_events_old), now()) AT TIME ZONE 'UTC')),
+            date_trunc('month', (now() AT TIME ZONE 'UTC')) + INTERVAL '3 months',
+            INTERVAL '1 month')::DATE
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF audit_events FOR VALUES FROM (%L) TO (%L)',
+            'audit_events_p' || to_char(mois, 'YYYYMM'),
+            mois::TIMESTAMP AT TIME ZONE 'UTC',
+            (mois + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+CREATE TABLE audit_events_default PARTITION OF audit_events DEFAULT;
+
+-- 4. Recopie des événements (les lignes historiques sans date prennent la date de migration)
+INSERT INTO audit_events (id, type, message, actor, atiso)
+SELECT id, type, message, actor, COALESCE(atiso, now()) FROM audit_events_old;
+
+SELECT setval(pg_get_serial_sequence('audit_events', 'id'), COALESCE((SELECT MAX(id) FROM audit_events), 0) + 1, false);
+
+DROP TABLE audit_events_old;
+
+COMMIT;
+
+-- 5. Contrôle: nombre d'événements par partition (audit_events_default attendu à 0)
+SELECT tableoid::regclass AS partition, COUNT(*) AS nb_evenements
+FROM audit_events
+GROUP BY tableoid
+ORDER BY partition;
+
+-- 6. Contrôle: une requête bornée sur atiso ne lit que les partitions du mois courant
+EXPLAIN SELECT * FROM audit_events
+WHERE type = 'ACCESS_REQUEST_CREATED' AND atiso >= date_trunc('month', now())
+ORDER BY atiso DESC LIMIT 5;
+
+-- 7. Partition par défaut non vide (événements hors des partitions existantes): créer la partition manquante
+--    après avoir déplacé ses lignes, par exemple pour janvier 2030:
+-- BEGIN;
+-- CREATE TEMP TABLE audit_a_deplacer AS
+--     SELECT * FROM audit_events_default WHERE atiso >= '2030-01-01 00:00:00+00' AND atiso < '2030-02-01 00:00:00+00';
+-- DELETE FROM audit_events_default WHERE atiso >= '2030-01-01 00:00:00+00' AND atiso < '2030-02-01 00:00:00+00';
+-- CREATE TABLE audit_events_p203001 PARTITION OF audit_events
+--     FOR VALUES FROM ('2030-01-01 00:00:00+00') TO ('2030-02-01 00:00:00+00');
+-- INSERT INTO audit_events SELECT * FROM audit_a_deplacer;
+-- COMMIT;
+
+-- 8. Restauration d'un mois archivé: recréer sa partition (comme en 7), décompresser le fichier puis l'importer.
+--    Ne pas le faire pour un mois encore hors rétention: il serait archivé à nouveau au passage suivant.
+-- \copy audit_events (id, type, actor, message, atiso) FROM 'audit_events_2024-01.csv' WITH (FORMAT csv, HEADER true)
+
+-- 9. Table non partitionnée: l'index (type, atiso) est remplacé par idx_audit_events_type_at_id (type, atiso DESC, id DESC)
+-- DROP INDEX IF EXISTS idx_audit_events_type_at;
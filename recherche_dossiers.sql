@@ -0,0 +1,32 @@
+-- Recherche des dossiers par champ du dataJson (table case_search_terms, créée par Hibernate)
+-- Chaque dossier y a une ligne marqueur (field = '$') et une ligne par valeur de son JSON
+-- (chemin des clés, valeur en minuscules sans accents). Les dossiers existants sont indexés
+-- en tâche de fond au démarrage du backend.
+
+-- 1. PostgreSQL: index dédié aux recherches par préfixe (LIKE 'debut%') quelle que soit la collation
+CREATE INDEX IF NOT EXISTS idx_case_search_terms_field_term_prefix
+    ON case_search_terms (field, term text_pattern_ops);
+
+-- 2. Index unique (case_id, field, term), créé par le backend au démarrage après suppression des doublons
+--    (il remplace idx_case_search_terms_case_field). Équivalent manuel, sans bloquer les écritures pendant
+--    la construction de l'index:
+DELETE FROM case_search_terms t USING case_search_terms d
+WHERE t.case_id = d.case_id AND t.field = d.field AND t.term = d.term AND t.id > d.id;
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_case_search_terms_case_field_term
+    ON case_search_terms (case_id, field, term);
+DROP INDEX IF EXISTS idx_case_search_terms_case_field;
+
+-- 3. Contrôle: dossiers non encore indexés (attendu 0 une fois l'indexation de démarrage terminée)
+SELECT COUNT(*) AS dossiers_non_indexes
+FROM insurance_cases c
+WHERE NOT EXISTS (SELECT 1 FROM case_search_terms t WHERE t.case_id = c.id AND t.field = '$');
+
+-- 4. Contrôle: champs disponibles pour la recherche et nombre de valeurs
+SELECT field, COUNT(*) AS nb_valeurs, COUNT(DISTINCT case_id) AS nb_dossiers
+FROM case_search_terms
+WHERE field <> '$'
+GROUP BY field
+ORDER BY nb_dossiers DESC;
+
+-- 5. Réindexation complète (après modification des règles d'extraction): vider la table puis redémarrer le backend
+-- TRUNCATE case_search_terms;
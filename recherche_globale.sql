@@ -0,0 +1,36 @@
+-- Recherche globale (table search_documents, créée par Hibernate)
+-- Un document par rapport, dossier, fichier de rapport et pièce jointe de dossier. Ses mots (minuscules,
+-- sans accents) sont dans search_vector (tsvector pondéré: A titre ou référence, B nom de personne, C texte libre)
+-- et dans search_text (recherche approchée par trigrammes). Les données existantes sont indexées en tâche de
+-- fond au démarrage du backend.
+
+-- 1. Index créés par le backend au démarrage (CREATE INDEX IF NOT EXISTS). Sur une table déjà volumineuse,
+--    les créer au préalable sans bloquer les écritures:
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_search_documents_vector
+    ON search_documents USING GIN (search_vector);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_search_documents_text_trgm
+    ON search_documents USING GIN (search_text gin_trgm_ops);
+
+-- 2. Ancienne table des mots (avant search_vector), plus utilisée: à supprimer une fois le backend mis à jour
+DROP TABLE IF EXISTS search_tokens;
+
+-- 3. Contrôle: données non encore indexées (attendu 0 une fois l'indexation de démarrage terminée)
+SELECT (SELECT COUNT(*) FROM reports r
+        WHERE NOT EXISTS (SELECT 1 FROM search_documents d WHERE d.doc_type = 'REPORT' AND d.doc_id = r.id)) AS rapports,
+       (SELECT COUNT(*) FROM insurance_cases c
+        WHERE NOT EXISTS (SELECT 1 FROM search_documents d WHERE d.doc_type = 'CASE' AND d.doc_id = c.id)) AS dossiers,
+       (SELECT COUNT(*) FROM report_files f
+        WHERE NOT EXISTS (SELECT 1 FROM search_documents d WHERE d.doc_type = 'REPORT_FILE' AND d.doc_id = f.id)) AS fichiers_rapports,
+       (SELECT COUNT(*) FROM case_attachments a
+        WHERE NOT EXISTS (SELECT 1 FROM search_documents d WHERE d.doc_type = 'CASE_ATTACHMENT' AND d.doc_id = a.id)) AS pieces_jointes;
+
+-- 4. Contrôle: mots les plus fréquents (au-delà de 2000 documents, seuls les plus récents sont classés).
+--    Estimation sur un échantillon de 1 %: ts_stat sur toute la table prend plusieurs minutes
+SELECT word, ndoc * 100 AS nb_documents_estime
+FROM ts_stat('SELECT search_vector FROM search_documents TABLESAMPLE SYSTEM (1)')
+ORDER BY ndoc DESC
+LIMIT 20;
+
+-- 5. Réindexation complète (après modification des règles d'extraction): vider la table puis redémarrer le backend
+-- TRUNCATE search_documents;
@@ -0,0 +1,30 @@
+-- Agrégats des statistiques (table stats_counters, créée par Hibernate)
+-- Les compteurs sont mis à jour par le backend à chaque création/suppression de dossier et à chaque
+-- événement d'audit. Au démarrage, s'il n'existe pas de ligne REBUILT (reconstruction menée à terme), ils sont
+-- recalculés à partir des données existantes, sous verrou: les écritures concurrentes sont comptées une seule fois.
+
+-- 1. Contrôle: nombre de dossiers par maison d'assurance selon les agrégats
+SELECT company, SUM(total) AS nb_dossiers
+FROM stats_counters
+WHERE metric = 'CASES'
+GROUP BY company
+ORDER BY nb_dossiers DESC;
+
+-- 2. Contrôle: total des agrégats comparé aux tables sources (écarts attendus à 0; avec la rétention des
+--    événements d'audit, ecart_audit est égal au nombre d'événements archivés, voir partitionnement_audit.sql)
+SELECT (SELECT COALESCE(SUM(total), 0) FROM stats_counters WHERE metric = 'CASES')
+     - (SELECT COUNT(*) FROM insurance_cases) AS ecart_dossiers,
+       (SELECT COALESCE(SUM(total), 0) FROM stats_counters WHERE metric LIKE 'AUDIT\_%')
+     - (SELECT COUNT(*) FROM audit_events) AS ecart_audit;
+
+-- 3. Dernière reconstruction (jour et nombre d'agrégats)
+SELECT stat_day AS reconstruit_le, total AS nb_agregats FROM stats_counters WHERE metric = 'REBUILT';
+
+-- 4. Reconstruction complète (en cas d'écart): supprimer la ligne témoin puis redémarrer le backend.
+--    La reconstruction repart des tables sources: les événements d'audit déjà archivés ne sont plus comptés.
+-- DELETE FROM stats_counters WHERE metric = 'REBUILT';
+
+-- 5. Mise à jour d'une installation dont les agrégats sont à jour (ligne témoin absente, version précédente):
+--    à exécuter avant le redémarrage pour conserver les agrégats, notamment ceux des événements archivés
+-- INSERT INTO stats_counters (metric, company, stat_day, total)
+-- SELECT 'REBUILT', '', CURRENT_DATE, COUNT(*) FROM stats_counters;